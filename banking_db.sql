@@ -32,6 +32,7 @@ CREATE TABLE `bank_accounts` (
   `account_number` varchar(20) NOT NULL,
   `account_holder_name` varchar(100) NOT NULL,
   `balance` decimal(38,2) NOT NULL,
+  `version` bigint(20) NOT NULL DEFAULT 0,
   `created_at` timestamp NOT NULL DEFAULT current_timestamp(),
   `updated_at` timestamp NOT NULL DEFAULT current_timestamp() ON UPDATE current_timestamp()
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -46,6 +47,20 @@ INSERT INTO `bank_accounts` (`id`, `account_number`, `account_holder_name`, `bal
 
 -- --------------------------------------------------------
 
+--
+-- Structure de la table `transactions_seq`
+-- (séquence émulée pour les identifiants de `transactions`, allouée par blocs de 100 ;
+--  la valeur initiale doit dépasser le plus grand id existant d'au moins un bloc)
+--
+
+CREATE TABLE `transactions_seq` (
+  `next_val` bigint(20) DEFAULT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+INSERT INTO `transactions_seq` (`next_val`) VALUES (200);
+
+-- --------------------------------------------------------
+
 --
 -- Structure de la table `transactions`
 --
@@ -73,6 +88,82 @@ INSERT INTO `transactions` (`id`, `account_id`, `transaction_type`, `amount`, `t
 (8, 1, 'DEPOSIT', '-500.00', '2024-09-09 01:26:59'),
 (9, 2, 'DEPOSIT', '500.00', '2024-09-09 01:26:59');
 
+-- --------------------------------------------------------
+
+--
+-- Structure de la table `account_read_model`
+-- (modèle de lecture des comptes, alimenté de façon asynchrone depuis le journal)
+--
+
+CREATE TABLE `account_read_model` (
+  `account_id` bigint(20) NOT NULL,
+  `balance` decimal(38,2) NOT NULL,
+  `last_transaction_at` datetime(6) DEFAULT NULL,
+  `transaction_count` bigint(20) NOT NULL,
+  PRIMARY KEY (`account_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- --------------------------------------------------------
+
+--
+-- Structure de la table `account_daily_flows`
+-- (entrées et sorties par compte et par jour, pour les cumuls sur 30 jours du modèle de lecture)
+--
+
+CREATE TABLE `account_daily_flows` (
+  `account_id` bigint(20) NOT NULL,
+  `flow_day` date NOT NULL,
+  `total_in` decimal(38,2) NOT NULL,
+  `total_out` decimal(38,2) NOT NULL,
+  PRIMARY KEY (`account_id`,`flow_day`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- --------------------------------------------------------
+
+--
+-- Structure de la table `balance_checkpoints`
+-- (solde de chaque compte actif relevé chaque jour à minuit, pour les soldes à date)
+--
+
+CREATE TABLE `balance_checkpoints` (
+  `account_id` bigint(20) NOT NULL,
+  `checkpoint_at` datetime(6) NOT NULL,
+  `balance` decimal(38,2) NOT NULL,
+  PRIMARY KEY (`account_id`,`checkpoint_at`),
+  KEY `idx_balance_checkpoints_at` (`checkpoint_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- --------------------------------------------------------
+
+--
+-- Structure de la table `idempotency_keys`
+-- (clés Idempotency-Key des virements et réponse de leur première exécution ;
+--  une clé sans réponse n'est jamais purgée, son issue étant inconnue)
+--
+
+CREATE TABLE `idempotency_keys` (
+  `idempotency_key` varchar(100) NOT NULL,
+  `fingerprint` varchar(200) NOT NULL,
+  `response_status` int(11) DEFAULT NULL,
+  `response_body` varchar(500) DEFAULT NULL,
+  `created_at` datetime(6) NOT NULL,
+  PRIMARY KEY (`idempotency_key`),
+  KEY `idx_idempotency_keys_created_at` (`created_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- --------------------------------------------------------
+
+--
+-- Structure de la table `journal_checkpoint`
+-- (dernière séquence du journal du moteur en mémoire projetée en base ; une seule ligne)
+--
+
+CREATE TABLE `journal_checkpoint` (
+  `id` int(11) NOT NULL,
+  `last_sequence` bigint(20) NOT NULL,
+  PRIMARY KEY (`id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 --
 -- Index pour les tables déchargées
 --
@@ -89,7 +180,8 @@ ALTER TABLE `bank_accounts`
 --
 ALTER TABLE `transactions`
   ADD PRIMARY KEY (`id`),
-  ADD KEY `account_id` (`account_id`);
+  ADD KEY `account_id` (`account_id`),
+  ADD KEY `idx_transactions_account_date_id` (`account_id`,`transaction_date`,`id`);
 
 --
 -- AUTO_INCREMENT pour les tables déchargées
@@ -0,0 +1,28 @@
+-- Partitionnement mensuel de la table `transactions` par `transaction_date` (MySQL 8)
+--
+-- À exécuter une fois, application arrêtée, sur une base créée avec banking_db.sql.
+-- Ensuite, TransactionPartitionManager (banque.transactions.partitions.enabled=true) crée
+-- chaque mois les partitions à venir et détache ou supprime celles qui sortent de la rétention.
+--
+-- Contraintes de MySQL sur une table partitionnée :
+--  * la colonne de partitionnement doit faire partie de toute clé unique, d'où la clé
+--    primaire (id, transaction_date) ; les id restent uniques grâce à la séquence ;
+--  * aucune clé étrangère n'est permise : la suppression des transactions d'un compte est
+--    faite par l'application (CompteBancaireService.deleteAccount) au lieu de ON DELETE CASCADE ;
+--  * RANGE COLUMNS n'accepte pas TIMESTAMP : la colonne passe en DATETIME(6), le type
+--    qu'Hibernate utilise pour un LocalDateTime.
+
+ALTER TABLE `transactions` DROP FOREIGN KEY `transactions_ibfk_1`;
+
+ALTER TABLE `transactions`
+  MODIFY `transaction_date` datetime(6) NOT NULL,
+  DROP PRIMARY KEY,
+  ADD PRIMARY KEY (`id`, `transaction_date`);
+
+-- p202409 reçoit tout l'historique jusqu'à septembre 2024 inclus ; les mois suivants sont
+-- découpés depuis pmax par TransactionPartitionManager au démarrage
+ALTER TABLE `transactions`
+  PARTITION BY RANGE COLUMNS (`transaction_date`) (
+    PARTITION p202409 VALUES LESS THAN ('2024-10-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
+  );
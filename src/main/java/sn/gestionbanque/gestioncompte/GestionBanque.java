@@ -2,10 +2,17 @@ package sn.gestionbanque.gestioncompte;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class GestionBanque {
     public static void main(String[] args) {
-        SpringApplication.run(GestionBanque.class, args);
+        SpringApplication application = new SpringApplication(GestionBanque.class);
+        // Virtual threads on Java 21+, whether started with spring-boot:run or java -jar
+        if (Runtime.version().feature() >= 21) {
+            application.setAdditionalProfiles("virtual-threads");
+        }
+        application.run(args);
     }
-}
\ No newline at end of file
+}
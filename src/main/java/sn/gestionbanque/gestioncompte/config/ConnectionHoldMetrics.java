@@ -0,0 +1,115 @@
+package sn.gestionbanque.gestioncompte.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Measures how long each JDBC connection is held, from checkout until it is returned to the pool,
+ * tagged with the endpoint (URI pattern) that borrowed it. Requests without a web context
+ * (schedulers, engine threads, streamed exports) are tagged {@code none}.
+ * The pool has a fixed size, so this is the figure that bounds how many requests it can serve.
+ */
+@Component
+public class ConnectionHoldMetrics implements BeanPostProcessor {
+
+    private static final String METRIC = "banque.db.connection.hold";
+
+    private final ObjectProvider<MeterRegistry> registry;
+
+    public ConnectionHoldMetrics(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        // Proxies and routers are skipped: the pools behind them are instrumented instead
+        if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)
+                && !(bean instanceof AbstractRoutingDataSource)) {
+            return new TimedDataSource(dataSource);
+        }
+        return bean;
+    }
+
+    /**
+     * Instruments a pool that is not exposed as a bean (for example a target of a routing data source).
+     * @param dataSource the pool.
+     * @return the instrumented data source.
+     */
+    public DataSource instrument(DataSource dataSource) {
+        return new TimedDataSource(dataSource);
+    }
+
+    // Closeable so that the pool it wraps is still closed with the context
+    private final class TimedDataSource extends DelegatingDataSource implements AutoCloseable {
+
+        private TimedDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (getTargetDataSource() instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return timed(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return timed(super.getConnection(username, password));
+        }
+
+        private Connection timed(Connection connection) {
+            MeterRegistry meters = registry.getIfAvailable();
+            if (meters == null) {
+                return connection;
+            }
+            Timer.Sample sample = Timer.start(meters);
+            String endpoint = currentEndpoint();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+                        if ("close".equals(method.getName()) && !connection.isClosed()) {
+                            sample.stop(Timer.builder(METRIC)
+                                    .description("Time a JDBC connection is held before being returned to the pool")
+                                    .tag("endpoint", endpoint)
+                                    .register(meters));
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getTargetException();
+                        }
+                    });
+        }
+    }
+
+    private static String currentEndpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servlet)) {
+            return "none";
+        }
+        HttpServletRequest request = servlet.getRequest();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return request.getMethod() + " " + (pattern != null ? pattern : "unmapped");
+    }
+}
@@ -0,0 +1,48 @@
+package sn.gestionbanque.gestioncompte.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sends the reads of a request to the primary when it carries a consistency token younger than
+ * the maximum replica lag, so that a client always sees its own transfers.
+ * Malformed tokens are ignored: the read is then served like any other.
+ * Nothing here measures the lag: {@code banque.datasource.replica.max-lag-ms} must stay above the
+ * worst lag of every replica (monitor {@code Seconds_Behind_Source}, or take a lagging replica out
+ * of {@code banque.datasource.replica.url}), otherwise a client may not see its own transfers.
+ */
+@Component
+public class ConsistencyTokenFilter extends OncePerRequestFilter {
+
+    @Value("${banque.datasource.replica.max-lag-ms:5000}")
+    private long maxLagMs;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = request.getHeader(ReadConsistency.HEADER);
+        if (token != null && isRecent(token)) {
+            ReadConsistency.requirePrimary();
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadConsistency.clear();
+        }
+    }
+
+    private boolean isRecent(String token) {
+        try {
+            return System.currentTimeMillis() - Long.parseLong(token) < maxLagMs;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package sn.gestionbanque.gestioncompte.config;
+
+/**
+ * Read-your-writes support for replica routing.
+ * A write returns a consistency token (the time it committed); a client that sends it back on
+ * its next reads has them served by the primary until replicas are guaranteed to have caught up.
+ */
+public final class ReadConsistency {
+
+    public static final String HEADER = "X-Consistency-Token";
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReadConsistency() {
+    }
+
+    /**
+     * Issues a token for a write that has just committed.
+     */
+    public static String issueToken() {
+        return Long.toString(System.currentTimeMillis());
+    }
+
+    /**
+     * Tells whether the current thread must read from the primary.
+     */
+    static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    static void requirePrimary() {
+        PRIMARY_REQUIRED.set(Boolean.TRUE);
+    }
+
+    static void clear() {
+        PRIMARY_REQUIRED.remove();
+    }
+}
@@ -0,0 +1,91 @@
+package sn.gestionbanque.gestioncompte.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read/write splitting, enabled when {@code banque.datasource.replica.url} is set (a comma-separated
+ * list of replica URLs). Read-only transactions go to the replicas, everything else to the primary.
+ * Every pool is built from {@code spring.datasource.*} and {@code spring.datasource.hikari.*}; replicas
+ * only override the URL and, optionally, the credentials and pool size.
+ * The pools are beans, so they are closed with the context; the primary one is also bound by
+ * Boot's pool metrics and connection hold metrics like the default data source.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "banque.datasource.replica", name = "url")
+public class ReadReplicaConfig {
+
+    @Bean
+    public DataSource primaryDataSource(DataSourceProperties properties, Environment environment) {
+        return pool(properties, Binder.get(environment), "primary");
+    }
+
+    @Bean
+    ReplicaPools replicaPools(DataSourceProperties properties, Environment environment, MeterRegistry registry,
+                              @Value("${banque.datasource.replica.url}") List<String> replicaUrls,
+                              @Value("${banque.datasource.replica.username:${spring.datasource.username}}") String username,
+                              @Value("${banque.datasource.replica.password:${spring.datasource.password}}") String password,
+                              @Value("${banque.datasource.replica.pool-size:0}") int replicaPoolSize) {
+        Binder binder = Binder.get(environment);
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = pool(properties, binder, "replica-" + i);
+            replica.setJdbcUrl(replicaUrls.get(i).trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setReadOnly(true);
+            if (replicaPoolSize > 0) {
+                replica.setMaximumPoolSize(replicaPoolSize);
+            }
+            // Not DataSource beans (they must not be candidates for injection): bound here instead of by Boot
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            replicas.add(replica);
+        }
+        return new ReplicaPools(replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary, ReplicaPools replicaPools,
+                                 ConnectionHoldMetrics holdMetrics) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (HikariDataSource replica : replicaPools.pools()) {
+            replicas.add(holdMetrics.instrument(replica));
+        }
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replicas));
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, Binder binder, String name) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        return pool;
+    }
+
+    /**
+     * The replica pools, closed with the context.
+     */
+    record ReplicaPools(List<HikariDataSource> pools) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            pools.forEach(HikariDataSource::close);
+        }
+    }
+}
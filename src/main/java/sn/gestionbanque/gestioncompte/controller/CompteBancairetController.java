@@ -1,18 +1,44 @@
 package sn.gestionbanque.gestioncompte.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import sn.gestionbanque.gestioncompte.config.ReadConsistency;
+import sn.gestionbanque.gestioncompte.dto.CompteResume;
+import sn.gestionbanque.gestioncompte.dto.CursorPage;
+import sn.gestionbanque.gestioncompte.dto.SettlementResult;
+import sn.gestionbanque.gestioncompte.dto.TransactionDto;
+import sn.gestionbanque.gestioncompte.dto.TransferRequest;
+import sn.gestionbanque.gestioncompte.dto.TransferResult;
+import sn.gestionbanque.gestioncompte.dto.TransferStatus;
 import sn.gestionbanque.gestioncompte.exception.CompteInexistantException;
 import sn.gestionbanque.gestioncompte.exception.SoldeInsuffisantException;
 import sn.gestionbanque.gestioncompte.model.CompteBancaire;
-import sn.gestionbanque.gestioncompte.model.Transaction;
+import sn.gestionbanque.gestioncompte.service.AsyncTransferService;
+import sn.gestionbanque.gestioncompte.service.BalanceCheckpointService;
+import sn.gestionbanque.gestioncompte.service.BatchTransferService;
 import sn.gestionbanque.gestioncompte.service.CompteBancaireService;
+import sn.gestionbanque.gestioncompte.service.IdempotencyService;
+import sn.gestionbanque.gestioncompte.service.NettingService;
+import sn.gestionbanque.gestioncompte.service.TransactionExportService;
 
 import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/accounts")
@@ -21,6 +47,30 @@ public class CompteBancairetController {
     @Autowired
     private CompteBancaireService service;
 
+    @Autowired
+    private BatchTransferService batchTransferService;
+
+    @Autowired
+    private AsyncTransferService asyncTransferService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private NettingService nettingService;
+
+    @Autowired
+    private TransactionExportService exportService;
+
+    @Autowired
+    private BalanceCheckpointService checkpointService;
+
+    @Value("${banque.history.cache.head-max-age-seconds:5}")
+    private long headMaxAgeSeconds;
+
+    @Value("${banque.history.cache.settled-max-age-seconds:86400}")
+    private long settledMaxAgeSeconds;
+
     /**
      * Creates a new bank account.
      * @param account the account to be created.
@@ -33,24 +83,59 @@ public class CompteBancairetController {
 
     /**
      * Retrieves an account by its ID.
+     * The ETag is the account version; a matching {@code If-None-Match} is answered with 304
+     * from the cached version, without loading the account.
      * @param id the ID of the account.
-     * @return the account.
+     * @param request the current request, for the conditional headers.
+     * @return the account, or 304 if it has not changed.
      * @throws CompteInexistantException if no account is found with the given ID.
      */
     @GetMapping("/{id}")
-    public CompteBancaire getAccount(@PathVariable Long id) {
-        return service.getAccount(id);
+    public ResponseEntity<CompteBancaire> getAccount(@PathVariable Long id, WebRequest request) {
+        if (request.checkNotModified(versionETag(service.getAccountVersion(id)))) {
+            return null;
+        }
+        CompteBancaire account = service.getAccount(id);
+        return ResponseEntity.ok().eTag(versionETag(account.getVersion())).body(account);
     }
 
     /**
-     * Retrieves the balance of an account.
+     * Retrieves the summary of an account (number, holder and balance).
      * @param id the ID of the account.
-     * @return the balance of the account.
+     * @return the summary.
+     * @throws CompteInexistantException if no account is found with the given ID.
+     */
+    @GetMapping("/{id}/summary")
+    public CompteResume getAccountSummary(@PathVariable Long id) {
+        return service.getAccountSummary(id);
+    }
+
+    /**
+     * Retrieves the balance of an account, now or at a point in time.
+     * A matching {@code If-None-Match} is answered with 304 for the current balance.
+     * @param id the ID of the account.
+     * @param asOf if set, the point in time (ISO date-time) of the balance; computed from the nearest
+     *             balance checkpoint.
+     * @param request the current request, for the conditional headers.
+     * @return the balance of the account, or 304 if it has not changed.
      * @throws CompteInexistantException if no account is found with the given ID.
      */
     @GetMapping("/{id}/balance")
-    public BigDecimal getAccountBalance(@PathVariable Long id) {
-        return service.getAccountBalance(id);
+    public ResponseEntity<BigDecimal> getAccountBalance(@PathVariable Long id,
+                                                        @RequestParam(required = false)
+                                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf,
+                                                        WebRequest request) {
+        if (asOf != null) {
+            return ResponseEntity.ok(checkpointService.getBalanceAt(id, asOf));
+        }
+        BigDecimal balance = service.getAccountBalance(id);
+        // The body is the balance itself, so it makes a strong ETag that also holds for balances
+        // served by the in-memory engine, which have no account version yet
+        String etag = "\"" + balance.toPlainString() + "\"";
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(balance);
     }
 
     /**
@@ -62,14 +147,57 @@ public class CompteBancairetController {
      * @throws CompteInexistantException if no account is found with the given ID.
      */
     @GetMapping("/{id}/transactions")
-    public Page<Transaction> getAccountTransactions(@PathVariable Long id,
+    public Page<TransactionDto> getAccountTransactions(@PathVariable Long id,
                                                     @RequestParam int page,
                                                     @RequestParam int size) {
         return service.getAccountTransactions(id, page, size);
     }
 
+    /**
+     * Retrieves the transaction history of an account with keyset pagination, newest first.
+     * No row can appear in a page that follows a settled cursor, so it can be kept by shared caches
+     * for {@code banque.history.cache.settled-max-age-seconds}; rows can still leave it (account
+     * deletion, retention), hence the bound. The head page and recent pages stay short-lived.
+     * @param id the ID of the account.
+     * @param cursor the cursor returned with the previous page; omitted for the first page.
+     * @param size the size of the page.
+     * @return the page and the cursor of the next one ({@code null} on the last page).
+     * @throws CompteInexistantException if no account is found with the given ID.
+     */
+    @GetMapping("/{id}/transactions/scroll")
+    public ResponseEntity<CursorPage<TransactionDto>> scrollAccountTransactions(@PathVariable Long id,
+                                                                                @RequestParam(required = false) String cursor,
+                                                                                @RequestParam(defaultValue = "20") int size) {
+        CursorPage<TransactionDto> page = service.getAccountTransactions(id, cursor, size);
+        CacheControl cacheControl = service.isSettledPage(cursor)
+                ? CacheControl.maxAge(Duration.ofSeconds(settledMaxAgeSeconds)).cachePublic()
+                : CacheControl.maxAge(Duration.ofSeconds(headMaxAgeSeconds));
+        return ResponseEntity.ok().cacheControl(cacheControl).body(page);
+    }
+
+    /**
+     * Exports the full transaction history of an account, oldest first, streamed as it is read.
+     * @param id the ID of the account.
+     * @param format {@code ndjson} (default) or {@code csv}.
+     * @return the streamed export.
+     * @throws CompteInexistantException if no account is found with the given ID.
+     */
+    @GetMapping("/{id}/transactions/export")
+    public ResponseEntity<StreamingResponseBody> exportAccountTransactions(@PathVariable Long id,
+                                                                           @RequestParam(defaultValue = "ndjson") String format) {
+        TransactionExportService.Format exportFormat = TransactionExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"transactions-" + id + "." + exportFormat.extension() + "\"")
+                .body(exportService.export(id, exportFormat));
+    }
+
     /**
      * Performs a transfer between two accounts.
+     * With an {@code Idempotency-Key} header, a retried request returns the original response
+     * instead of transferring again. The response carries an {@code X-Consistency-Token} to send with
+     * the next reads, so that they see this transfer even when reads are served by replicas.
      * @param fromAccountId the ID of the account from which the amount will be transferred.
      * @param toAccountId the ID of the account to which the amount will be transferred.
      * @param amount the amount to be transferred.
@@ -81,7 +209,23 @@ public class CompteBancairetController {
     @PostMapping("/{id}/transfer")
     public ResponseEntity<String> transfer(@PathVariable Long id,
                                             @RequestParam Long toAccountId,
-                                            @RequestParam BigDecimal amount) {
+                                            @RequestParam BigDecimal amount,
+                                            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        ResponseEntity<String> response;
+        if (idempotencyKey == null) {
+            response = doTransfer(id, toAccountId, amount);
+        } else {
+            String fingerprint = id + ":" + toAccountId + ":" + amount.stripTrailingZeros().toPlainString();
+            response = idempotencyService.execute(idempotencyKey, fingerprint, () -> doTransfer(id, toAccountId, amount));
+        }
+        // Issued once the transfer has committed: reads sending it back are served by the primary
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(ReadConsistency.HEADER, ReadConsistency.issueToken())
+                .body(response.getBody());
+    }
+
+    private ResponseEntity<String> doTransfer(Long id, Long toAccountId, BigDecimal amount) {
         try {
             service.transfer(id, toAccountId, amount);
             return ResponseEntity.ok("Transfer successful");
@@ -90,15 +234,93 @@ public class CompteBancairetController {
         }
     }
 
+    /**
+     * Queues a transfer between two accounts and returns immediately.
+     * @param id the ID of the account from which the amount will be transferred.
+     * @param toAccountId the ID of the account to which the amount will be transferred.
+     * @param amount the amount to be transferred.
+     * @return 202 with the pending status; its {@code Location} is the status resource.
+     */
+    @PostMapping("/{id}/transfer/async")
+    public ResponseEntity<TransferStatus> transferAsync(@PathVariable Long id,
+                                                        @RequestParam Long toAccountId,
+                                                        @RequestParam BigDecimal amount) {
+        TransferStatus status = asyncTransferService.submit(id, toAccountId, amount);
+        return ResponseEntity.accepted()
+                .location(URI.create("/transfers/" + status.transferId()))
+                .body(status);
+    }
+
+    /**
+     * Performs many transfers in a single database transaction.
+     * A transfer that fails (unknown account, insufficient funds) is reported in its result
+     * and does not prevent the others from being applied.
+     * @param transfers the transfers, applied in the given order.
+     * @return one result per transfer, at the same index.
+     */
+    @PostMapping("/transfers/batch")
+    public List<TransferResult> transferBatch(@RequestBody List<TransferRequest> transfers) {
+        return batchTransferService.apply(transfers);
+    }
+
+    /**
+     * Queues a transfer for the next netting settlement.
+     * @param transfer the transfer.
+     * @return 202 with the ticket identifying the transfer in the settlement results.
+     */
+    @PostMapping("/transfers/netting")
+    public ResponseEntity<Long> enqueueForNetting(@RequestBody TransferRequest transfer) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(nettingService.enqueue(transfer));
+    }
+
+    /**
+     * Retrieves the outcome of a transfer queued for netting.
+     * @param ticket the ticket returned when the transfer was queued.
+     * @return the outcome once settled, 202 while it waits for a settlement, or 404 if the ticket is
+     *         unknown or its outcome has expired.
+     */
+    @GetMapping("/transfers/netting/{ticket}")
+    public ResponseEntity<SettlementResult> getNettingResult(@PathVariable long ticket) {
+        if (nettingService.isPending(ticket)) {
+            return ResponseEntity.accepted().build();
+        }
+        return ResponseEntity.of(nettingService.getResult(ticket));
+    }
+
+    /**
+     * Settles every queued transfer, one balance update per touched account.
+     * @return the outcome of each settled transfer.
+     */
+    @PostMapping("/transfers/netting/settle")
+    public List<SettlementResult> settleNetting() {
+        return nettingService.settle();
+    }
+
     /**
      * Lists all bank accounts with pagination.
      * @param page the page number (0-based).
      * @param size the size of the page.
-     * @return a page of bank accounts.
+     * @param count whether to compute the total count; {@code false} returns a slice, which skips the count query.
+     * @return a page (or slice) of bank accounts.
      */
     @GetMapping
-    public Page<CompteBancaire> listAccounts(@RequestParam int page, @RequestParam int size) {
-        return service.listAccounts(page, size);
+    public Slice<CompteBancaire> listAccounts(@RequestParam int page, @RequestParam int size,
+                                              @RequestParam(defaultValue = "true") boolean count) {
+        return count ? service.listAccounts(page, size) : service.listAccountsSlice(page, size);
+    }
+
+    /**
+     * Lists all bank accounts with keyset pagination.
+     * @param cursor the cursor returned with the previous page; omitted for the first page.
+     * @param size the size of the page.
+     * @param sort {@code id} (default) or {@code accountNumber}.
+     * @return the page and the cursor of the next one ({@code null} on the last page).
+     */
+    @GetMapping("/scroll")
+    public CursorPage<CompteBancaire> scrollAccounts(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "20") int size,
+                                                     @RequestParam(defaultValue = "id") String sort) {
+        return service.scrollAccounts(cursor, size, sort);
     }
 
     /**
@@ -110,4 +332,8 @@ public class CompteBancairetController {
     public void deleteAccount(@PathVariable Long id) {
         service.deleteAccount(id);
     }
+
+    private static String versionETag(long version) {
+        return "\"v" + version + "\"";
+    }
 }
@@ -0,0 +1,43 @@
+package sn.gestionbanque.gestioncompte.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import sn.gestionbanque.gestioncompte.dto.CompteLecture;
+import sn.gestionbanque.gestioncompte.exception.CompteInexistantException;
+import sn.gestionbanque.gestioncompte.readmodel.AccountReadModel;
+
+@RestController
+@RequestMapping("/read/accounts")
+public class ReadModelController {
+
+    @Autowired
+    private AccountReadModel readModel;
+
+    /**
+     * Retrieves an account from the read model: balance, last transaction time, transaction count
+     * and 30-day in/out totals. Never contends with transfers, but may lag them slightly.
+     * @param id the ID of the account.
+     * @return the account.
+     * @throws CompteInexistantException if the account is not in the read model.
+     */
+    @GetMapping("/{id}")
+    public CompteLecture getAccount(@PathVariable Long id) {
+        return readModel.getAccount(id);
+    }
+
+    /**
+     * Starts a rebuild of the read model from the accounts and the ledger.
+     * @return 202; the rebuild runs on the projector thread.
+     */
+    @PostMapping("/rebuild")
+    public ResponseEntity<Void> rebuild() {
+        readModel.rebuild();
+        return ResponseEntity.accepted().build();
+    }
+}
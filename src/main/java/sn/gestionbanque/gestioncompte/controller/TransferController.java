@@ -0,0 +1,29 @@
+package sn.gestionbanque.gestioncompte.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import sn.gestionbanque.gestioncompte.dto.TransferStatus;
+import sn.gestionbanque.gestioncompte.service.AsyncTransferService;
+
+@RestController
+@RequestMapping("/transfers")
+public class TransferController {
+
+    @Autowired
+    private AsyncTransferService asyncTransferService;
+
+    /**
+     * Retrieves the status of an asynchronous transfer.
+     * @param transferId the id returned when the transfer was submitted.
+     * @return the status, or 404 if the transfer is unknown or its status has expired.
+     */
+    @GetMapping("/{transferId}")
+    public ResponseEntity<TransferStatus> getTransferStatus(@PathVariable String transferId) {
+        return ResponseEntity.of(asyncTransferService.getStatus(transferId));
+    }
+}
@@ -0,0 +1,9 @@
+package sn.gestionbanque.gestioncompte.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * An account balance and the account version it was read at.
+ */
+public record BalanceSnapshot(BigDecimal balance, long version) {
+}
@@ -0,0 +1,13 @@
+package sn.gestionbanque.gestioncompte.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * An account as served by the read model. May lag the ledger by the projection delay.
+ * @param inflow30Days money credited over the last 30 days (today included).
+ * @param outflow30Days money debited over the last 30 days (today included), as a positive amount.
+ */
+public record CompteLecture(Long accountId, BigDecimal balance, LocalDateTime lastTransactionAt,
+                            long transactionCount, BigDecimal inflow30Days, BigDecimal outflow30Days) {
+}
@@ -0,0 +1,9 @@
+package sn.gestionbanque.gestioncompte.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only summary of an account, selected column by column instead of loading the entity.
+ */
+public record CompteResume(Long id, String accountNumber, String accountHolderName, BigDecimal balance) {
+}
@@ -0,0 +1,11 @@
+package sn.gestionbanque.gestioncompte.dto;
+
+import java.util.List;
+
+/**
+ * A page of a keyset-paginated listing.
+ * @param items the items of the page.
+ * @param nextCursor the opaque cursor of the next page, or {@code null} if this is the last page.
+ */
+public record CursorPage<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,9 @@
+package sn.gestionbanque.gestioncompte.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Money in and out of an account over a period; {@code null} when the period has no movement.
+ */
+public record FluxTotaux(BigDecimal totalIn, BigDecimal totalOut) {
+}
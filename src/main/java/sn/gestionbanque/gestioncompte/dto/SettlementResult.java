@@ -0,0 +1,7 @@
+package sn.gestionbanque.gestioncompte.dto;
+
+/**
+ * Outcome of a queued transfer once its netting window has been settled.
+ */
+public record SettlementResult(long ticket, TransferResult.Status status, String message) {
+}
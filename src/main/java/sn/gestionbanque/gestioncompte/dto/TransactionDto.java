@@ -0,0 +1,13 @@
+package sn.gestionbanque.gestioncompte.dto;
+
+import sn.gestionbanque.gestioncompte.model.Transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A row of an account transaction history, selected column by column instead of loading the entity
+ * and its account. The type is the stored {@code transaction_type}, not derived from the amount.
+ */
+public record TransactionDto(Long id, BigDecimal amount, LocalDateTime transactionDate, Transaction.Type type) {
+}
@@ -0,0 +1,9 @@
+package sn.gestionbanque.gestioncompte.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One transfer of a batch submitted to {@code POST /accounts/transfers/batch}.
+ */
+public record TransferRequest(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+}
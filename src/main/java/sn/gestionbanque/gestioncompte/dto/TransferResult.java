@@ -0,0 +1,18 @@
+package sn.gestionbanque.gestioncompte.dto;
+
+/**
+ * Outcome of one transfer of a batch, reported at the same index as the request.
+ */
+public record TransferResult(int index, Status status, String message) {
+
+    public enum Status {
+        COMPLETED,
+        INSUFFICIENT_FUNDS,
+        ACCOUNT_NOT_FOUND,
+        INVALID
+    }
+
+    public static TransferResult completed(int index) {
+        return new TransferResult(index, Status.COMPLETED, null);
+    }
+}
@@ -0,0 +1,28 @@
+package sn.gestionbanque.gestioncompte.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * State of a transfer submitted with {@code POST /accounts/{id}/transfer/async}.
+ */
+public record TransferStatus(String transferId,
+                             Long fromAccountId,
+                             Long toAccountId,
+                             BigDecimal amount,
+                             State state,
+                             String message,
+                             LocalDateTime submittedAt,
+                             LocalDateTime completedAt) {
+
+    public enum State {
+        PENDING,
+        COMPLETED,
+        FAILED
+    }
+
+    public TransferStatus complete(State state, String message) {
+        return new TransferStatus(transferId, fromAccountId, toAccountId, amount, state, message,
+                submittedAt, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,492 @@
+package sn.gestionbanque.gestioncompte.engine;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import sn.gestionbanque.gestioncompte.exception.CompteInexistantException;
+import sn.gestionbanque.gestioncompte.exception.SoldeInsuffisantException;
+import sn.gestionbanque.gestioncompte.model.CompteBancaire;
+import sn.gestionbanque.gestioncompte.repository.CompteBancaireRepository;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory ledger engine, enabled with {@code banque.transfer.mode=IN_MEMORY}.
+ * <p>
+ * Balances live in memory, partitioned by account id; each partition is owned by a single writer
+ * thread, so balances are updated without locks. A transfer goes through three stages:
+ * <ol>
+ *     <li>the partition of the credited account checks that the account exists;</li>
+ *     <li>the partition of the debited account checks the funds and debits it;</li>
+ *     <li>the journal thread appends the transfer to the memory-mapped journal and forces it to
+ *     disk together with the rest of its group, then acknowledges the caller and hands the credit
+ *     back to the credited account's partition.</li>
+ * </ol>
+ * Journaled transfers are projected asynchronously into {@code bank_accounts} and {@code transactions}
+ * by {@link JournalProjection}. On startup every journaled transfer above the projection checkpoint
+ * is replayed into the database before the engine accepts new transfers.
+ * <p>
+ * Accounts are loaded from the database on first use and kept in memory, so accounts must not be
+ * deleted while the engine is active.
+ */
+@Component
+@ConditionalOnProperty(name = "banque.transfer.mode", havingValue = "IN_MEMORY")
+public class InMemoryLedgerEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryLedgerEngine.class);
+
+    private static final long WAIT_SLICE_MS = 100;
+
+    @Autowired
+    private CompteBancaireRepository repository;
+
+    @Autowired
+    private JournalProjection projection;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Value("${banque.engine.partitions:4}")
+    private int partitionCount;
+
+    @Value("${banque.engine.ring-size:65536}")
+    private int ringSize;
+
+    @Value("${banque.engine.journal.directory:journal}")
+    private String journalDirectory;
+
+    @Value("${banque.engine.journal.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${banque.engine.journal.max-group:1024}")
+    private int maxGroup;
+
+    @Value("${banque.engine.projection.batch-size:500}")
+    private int projectionBatchSize;
+
+    private Partition[] partitions;
+    private RingBuffer<PendingTransfer> journalRing;
+    private RingBuffer<JournalRecord> projectionRing;
+    private MappedJournal journal;
+    private DistributionSummary groupSize;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+    /** Set when a failed journal write could not be undone; the engine then accepts nothing more. */
+    private volatile boolean halted;
+    /** Set once every engine thread has exited; transfers still waiting can then never be journaled. */
+    private volatile boolean stopped;
+
+    /** Next journal sequence; journal thread only. */
+    private long nextSequence;
+    private volatile long lastJournaled;
+    private volatile long lastProjected;
+    /** Journal clock of the last poll, and the last sequence stamped at or before it; journal thread writes. */
+    private volatile long stampedSequence;
+    private volatile long stampedAt;
+
+    @PostConstruct
+    void start() {
+        journal = new MappedJournal(Path.of(journalDirectory), segmentBytes);
+        recover();
+
+        journalRing = new RingBuffer<>(ringSize);
+        projectionRing = new RingBuffer<>(ringSize);
+        partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition();
+        }
+        groupSize = DistributionSummary.builder("banque.engine.journal.group-size")
+                .description("Transfers made durable by one journal force")
+                .register(registry);
+        Gauge.builder("banque.engine.projection.lag", this, engine -> engine.lastJournaled - engine.lastProjected)
+                .description("Journaled transfers not yet projected into the database")
+                .register(registry);
+
+        running = true;
+        for (int i = 0; i < partitionCount; i++) {
+            threads.add(new Thread(partitions[i]::run, "ledger-partition-" + i));
+        }
+        threads.add(new Thread(this::runJournal, "ledger-journal"));
+        threads.add(new Thread(this::runProjection, "ledger-projection"));
+        threads.forEach(Thread::start);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        if (threads.stream().anyMatch(Thread::isAlive)) {
+            log.warn("Ledger engine threads still running after stop, pending transfers left in place");
+            return;
+        }
+        stopped = true;
+        failPending();
+    }
+
+    /**
+     * Submits a transfer and waits until it is durable in the journal.
+     * @param fromAccountId the ID of the account from which the amount will be transferred.
+     * @param toAccountId the ID of the account to which the amount will be transferred.
+     * @param amount the amount to be transferred.
+     * @throws CompteInexistantException if any of the accounts is not found.
+     * @throws SoldeInsuffisantException if the source account has insufficient funds.
+     * @throws RejectedExecutionException if the engine cannot accept more transfers, or stopped before
+     *         journaling the transfer.
+     */
+    public void transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        if (amount.unscaledValue().bitLength() >= Long.SIZE) {
+            throw new IllegalArgumentException("Amount out of range: " + amount);
+        }
+        if (halted) {
+            throw new RejectedExecutionException("The ledger engine stopped after a journal failure; restart it to recover");
+        }
+        if (!running) {
+            throw new RejectedExecutionException("The ledger engine is stopped");
+        }
+        PendingTransfer transfer = new PendingTransfer(fromAccountId, toAccountId, amount);
+        if (!partitionOf(toAccountId).inbox.offer(transfer)) {
+            throw new RejectedExecutionException("The ledger engine is saturated, please retry");
+        }
+        try {
+            awaitJournaled(transfer);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the transfer to be journaled", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Returns the in-memory balance of an account.
+     * @param accountId the ID of the account.
+     * @return the balance, or {@code null} if the engine has not loaded the account, in which case
+     *         the database balance is current.
+     */
+    public BigDecimal balance(Long accountId) {
+        return partitionOf(accountId).balances.get(accountId);
+    }
+
+    /**
+     * Tells whether every transfer journaled at or before the given time is in the database.
+     * Rows projected by the engine are dated with their journal time, so until then a reader of
+     * {@code transactions} can still see rows appear with a date at or before that time.
+     * @param time the time, in the default time zone.
+     */
+    public boolean isProjectedThrough(LocalDateTime time) {
+        long at = stampedAt;
+        long sequence = stampedSequence;
+        return at > time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() && lastProjected >= sequence;
+    }
+
+    /**
+     * Waits for the transfer, in bounded slices: a transfer offered while the engine was stopping
+     * may land in an inbox that nothing drains anymore, and is failed here once the engine stopped.
+     */
+    private void awaitJournaled(PendingTransfer transfer) throws InterruptedException, ExecutionException {
+        while (true) {
+            try {
+                transfer.future.get(WAIT_SLICE_MS, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException ex) {
+                if (stopped) {
+                    // Every engine thread has exited, so the transfer can no longer reach the journal
+                    transfer.future.completeExceptionally(new RejectedExecutionException("The ledger engine is stopped"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Fails every transfer still queued once the engine threads have exited. None of them reached
+     * the journal (the journal thread acknowledges a group as soon as it is forced), so none was applied.
+     */
+    private void failPending() {
+        if (partitions == null) {
+            return;
+        }
+        RejectedExecutionException stoppedEx = new RejectedExecutionException("The ledger engine is stopped");
+        PendingTransfer transfer;
+        for (Partition partition : partitions) {
+            while ((transfer = partition.inbox.poll()) != null) {
+                transfer.future.completeExceptionally(stoppedEx);
+            }
+            while ((transfer = partition.internal.poll()) != null) {
+                transfer.future.completeExceptionally(stoppedEx);
+            }
+        }
+        while ((transfer = journalRing.poll()) != null) {
+            transfer.future.completeExceptionally(stoppedEx);
+        }
+    }
+
+    private Partition partitionOf(long accountId) {
+        return partitions[(int) Math.floorMod(accountId, (long) partitionCount)];
+    }
+
+    /**
+     * Projects every journaled transfer above the checkpoint, synchronously.
+     */
+    private void recover() {
+        long checkpoint = projection.lastProjectedSequence();
+        List<JournalRecord> batch = new ArrayList<>(projectionBatchSize);
+        long last = journal.replay(record -> {
+            if (record.sequence() > checkpoint) {
+                batch.add(record);
+                if (batch.size() == projectionBatchSize) {
+                    projection.project(batch);
+                    batch.clear();
+                }
+            }
+        });
+        if (!batch.isEmpty()) {
+            projection.project(batch);
+        }
+        nextSequence = Math.max(last, checkpoint) + 1;
+        lastJournaled = nextSequence - 1;
+        lastProjected = nextSequence - 1;
+        journal.truncate(lastProjected);
+        log.info("Ledger engine recovered up to journal sequence {}", lastProjected);
+    }
+
+    private void runJournal() {
+        List<PendingTransfer> group = new ArrayList<>(maxGroup);
+        int idle = 0;
+        while (running) {
+            long now = System.currentTimeMillis();
+            PendingTransfer transfer;
+            while (group.size() < maxGroup && (transfer = journalRing.poll()) != null) {
+                transfer.record = new JournalRecord(nextSequence++, transfer.fromAccountId, transfer.toAccountId,
+                        transfer.amount, now);
+                group.add(transfer);
+            }
+            // Sequence first: a reader seeing this clock sees every sequence stamped before it
+            stampedSequence = nextSequence - 1;
+            stampedAt = now;
+            if (group.isEmpty()) {
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            MappedJournal.Mark mark = journal.mark();
+            try {
+                for (PendingTransfer pending : group) {
+                    journal.append(pending.record);
+                }
+                journal.force();
+            } catch (RuntimeException ex) {
+                try {
+                    // Part of the group may already be on disk with valid checksums: undo it before refunding
+                    journal.rewind(mark);
+                } catch (RuntimeException rewindFailure) {
+                    ex.addSuppressed(rewindFailure);
+                    halt(group, ex);
+                    return;
+                }
+                log.error("Journal write failed, rejecting {} transfers", group.size(), ex);
+                nextSequence = group.get(0).record.sequence();
+                for (PendingTransfer pending : group) {
+                    pending.stage = Stage.REFUND;
+                    partitionOf(pending.fromAccountId).internal.offer(pending);
+                    pending.future.completeExceptionally(ex);
+                }
+                group.clear();
+                continue;
+            }
+            for (PendingTransfer pending : group) {
+                pending.stage = Stage.CREDIT;
+                partitionOf(pending.toAccountId).internal.offer(pending);
+                pending.future.complete(null);
+                while (!projectionRing.offer(pending.record)) {
+                    Thread.onSpinWait();
+                }
+            }
+            lastJournaled = group.get(group.size() - 1).record.sequence();
+            groupSize.record(group.size());
+            group.clear();
+        }
+    }
+
+    /**
+     * Stops journaling after a write that could neither be forced nor undone. The outcome of the
+     * group is unknown until a restart replays the journal, so nothing is refunded in memory; the
+     * group and every transfer still reaching the journal thread are failed.
+     */
+    private void halt(List<PendingTransfer> group, RuntimeException cause) {
+        halted = true;
+        log.error("Journal write failed and could not be undone, stopping the ledger engine", cause);
+        IllegalStateException unknown = new IllegalStateException(
+                "The transfer outcome is unknown until the ledger engine restarts", cause);
+        group.forEach(pending -> pending.future.completeExceptionally(unknown));
+        RejectedExecutionException rejected = new RejectedExecutionException(
+                "The ledger engine stopped after a journal failure; restart it to recover");
+        int idle = 0;
+        while (running) {
+            PendingTransfer transfer = journalRing.poll();
+            if (transfer == null) {
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            transfer.future.completeExceptionally(rejected);
+        }
+    }
+
+    private void runProjection() {
+        List<JournalRecord> batch = new ArrayList<>(projectionBatchSize);
+        int idle = 0;
+        while (running || lastProjected < lastJournaled) {
+            JournalRecord record;
+            while (batch.size() < projectionBatchSize && (record = projectionRing.poll()) != null) {
+                batch.add(record);
+            }
+            if (batch.isEmpty()) {
+                idle = idle(idle);
+                continue;
+            }
+            idle = 0;
+            try {
+                projection.project(batch);
+            } catch (RuntimeException ex) {
+                // The records stay journaled: keep the batch and retry, or replay it on restart
+                log.warn("Projection of {} journaled transfers failed, retrying", batch.size(), ex);
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+                continue;
+            }
+            lastProjected = batch.get(batch.size() - 1).sequence();
+            batch.clear();
+            journal.truncate(lastProjected);
+        }
+    }
+
+    private static int idle(int idle) {
+        if (idle < 100) {
+            Thread.onSpinWait();
+        } else {
+            LockSupport.parkNanos(50_000);
+        }
+        return idle + 1;
+    }
+
+    private enum Stage { CHECK_TARGET, DEBIT, CREDIT, REFUND }
+
+    private static final class PendingTransfer {
+        private final long fromAccountId;
+        private final long toAccountId;
+        private final BigDecimal amount;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private Stage stage = Stage.CHECK_TARGET;
+        private JournalRecord record;
+
+        private PendingTransfer(long fromAccountId, long toAccountId, BigDecimal amount) {
+            this.fromAccountId = fromAccountId;
+            this.toAccountId = toAccountId;
+            this.amount = amount;
+        }
+    }
+
+    /**
+     * A set of accounts owned by one writer thread. New transfers arrive through the bounded
+     * {@code inbox}; transfers already in flight are handed over through {@code internal}, which is
+     * unbounded so that two stages waiting on each other can never block.
+     */
+    private final class Partition {
+        private final RingBuffer<PendingTransfer> inbox = new RingBuffer<>(ringSize);
+        private final ConcurrentLinkedQueue<PendingTransfer> internal = new ConcurrentLinkedQueue<>();
+        private final ConcurrentHashMap<Long, BigDecimal> balances = new ConcurrentHashMap<>();
+
+        private void run() {
+            int idle = 0;
+            while (running) {
+                boolean worked = false;
+                PendingTransfer transfer;
+                while ((transfer = internal.poll()) != null) {
+                    handle(transfer);
+                    worked = true;
+                }
+                for (int i = 0; i < maxGroup && (transfer = inbox.poll()) != null; i++) {
+                    handle(transfer);
+                    worked = true;
+                }
+                idle = worked ? 0 : idle(idle);
+            }
+        }
+
+        private void handle(PendingTransfer transfer) {
+            switch (transfer.stage) {
+                case CHECK_TARGET -> checkTarget(transfer);
+                case DEBIT -> debit(transfer);
+                case CREDIT -> balances.merge(transfer.toAccountId, transfer.amount, BigDecimal::add);
+                case REFUND -> balances.merge(transfer.fromAccountId, transfer.amount, BigDecimal::add);
+            }
+        }
+
+        private void checkTarget(PendingTransfer transfer) {
+            if (!load(transfer.toAccountId)) {
+                transfer.future.completeExceptionally(
+                        new CompteInexistantException("Account not found with id: " + transfer.toAccountId));
+                return;
+            }
+            transfer.stage = Stage.DEBIT;
+            partitionOf(transfer.fromAccountId).internal.offer(transfer);
+        }
+
+        private void debit(PendingTransfer transfer) {
+            if (!load(transfer.fromAccountId)) {
+                transfer.future.completeExceptionally(
+                        new CompteInexistantException("Account not found with id: " + transfer.fromAccountId));
+                return;
+            }
+            BigDecimal balance = balances.get(transfer.fromAccountId);
+            if (balance.compareTo(transfer.amount) < 0) {
+                transfer.future.completeExceptionally(
+                        new SoldeInsuffisantException("Insufficient funds in account with id: " + transfer.fromAccountId));
+                return;
+            }
+            balances.put(transfer.fromAccountId, balance.subtract(transfer.amount));
+            while (!journalRing.offer(transfer)) {
+                Thread.onSpinWait();
+            }
+        }
+
+        private boolean load(long accountId) {
+            if (balances.containsKey(accountId)) {
+                return true;
+            }
+            Optional<BigDecimal> balance = repository.findById(accountId).map(CompteBancaire::getBalance);
+            balance.ifPresent(value -> balances.put(accountId, value));
+            return balance.isPresent();
+        }
+    }
+}
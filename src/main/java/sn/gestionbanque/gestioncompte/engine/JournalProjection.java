@@ -0,0 +1,86 @@
+package sn.gestionbanque.gestioncompte.engine;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import sn.gestionbanque.gestioncompte.model.JournalCheckpoint;
+import sn.gestionbanque.gestioncompte.model.Transaction;
+import sn.gestionbanque.gestioncompte.repository.CompteBancaireRepository;
+import sn.gestionbanque.gestioncompte.repository.JournalCheckpointRepository;
+import sn.gestionbanque.gestioncompte.service.BalanceCache;
+import sn.gestionbanque.gestioncompte.service.LedgerWriter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes journaled transfers into {@code bank_accounts} and {@code transactions}.
+ * A batch is projected in one transaction together with the checkpoint, so a record is either
+ * fully projected and checkpointed or not at all.
+ */
+@Component
+@ConditionalOnProperty(name = "banque.transfer.mode", havingValue = "IN_MEMORY")
+public class JournalProjection {
+
+    @Autowired
+    private CompteBancaireRepository repository;
+
+    @Autowired
+    private JournalCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private LedgerWriter ledgerWriter;
+
+    @Autowired
+    private BalanceCache balanceCache;
+
+    /**
+     * Read in a read-write transaction, so from the primary: a lagging replica would return an older
+     * checkpoint and recovery would project the same records twice.
+     * @return the last projected journal sequence, or 0 if nothing was projected yet.
+     */
+    @Transactional
+    public long lastProjectedSequence() {
+        return checkpointRepository.findById(JournalCheckpoint.SINGLETON_ID)
+                .map(JournalCheckpoint::getLastSequence)
+                .orElse(0L);
+    }
+
+    /**
+     * Projects a batch of records, in sequence order. Balances are netted per account, so the
+     * batch costs one UPDATE per touched account, issued in ascending id order.
+     * @param records the records, all above the current checkpoint.
+     */
+    @Transactional
+    public void project(List<JournalRecord> records) {
+        Map<Long, BigDecimal> deltas = new TreeMap<>();
+        List<Transaction> ledger = new ArrayList<>(records.size() * 2);
+        for (JournalRecord record : records) {
+            deltas.merge(record.fromAccountId(), record.amount().negate(), BigDecimal::add);
+            deltas.merge(record.toAccountId(), record.amount(), BigDecimal::add);
+            LocalDateTime date = LocalDateTime.ofInstant(Instant.ofEpochMilli(record.timestamp()), ZoneId.systemDefault());
+            ledger.add(ledgerWriter.entry(repository.getReferenceById(record.fromAccountId()), record.amount().negate(), date));
+            ledger.add(ledgerWriter.entry(repository.getReferenceById(record.toAccountId()), record.amount(), date));
+        }
+        deltas.forEach((id, delta) -> {
+            if (delta.signum() != 0) {
+                repository.adjustBalance(id, delta);
+            }
+        });
+        ledgerWriter.recordAll(ledger);
+        balanceCache.evictAll(deltas.keySet());
+
+        JournalCheckpoint checkpoint = checkpointRepository.findById(JournalCheckpoint.SINGLETON_ID)
+                .orElseGet(JournalCheckpoint::new);
+        checkpoint.setLastSequence(records.get(records.size() - 1).sequence());
+        checkpointRepository.save(checkpoint);
+    }
+}
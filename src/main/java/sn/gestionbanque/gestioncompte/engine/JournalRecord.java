@@ -0,0 +1,14 @@
+package sn.gestionbanque.gestioncompte.engine;
+
+import java.math.BigDecimal;
+
+/**
+ * A transfer as written to the write-ahead journal.
+ * @param sequence the position of the transfer in the journal, starting at 1.
+ * @param fromAccountId the debited account.
+ * @param toAccountId the credited account.
+ * @param amount the amount transferred.
+ * @param timestamp the acceptance time, in epoch milliseconds.
+ */
+public record JournalRecord(long sequence, long fromAccountId, long toAccountId, BigDecimal amount, long timestamp) {
+}
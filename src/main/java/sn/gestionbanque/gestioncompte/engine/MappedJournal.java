@@ -0,0 +1,203 @@
+package sn.gestionbanque.gestioncompte.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal stored in memory-mapped segment files.
+ * Records have a fixed size and carry a CRC, so a torn write at the end of a segment is detected
+ * on replay. A segment is named after the sequence of its first record.
+ * Not thread-safe: only the journal thread appends.
+ */
+final class MappedJournal {
+
+    static final int RECORD_SIZE = 48;
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private MappedByteBuffer segment;
+    /** Segments opened since the last {@link #mark()}. */
+    private final List<Path> rolled = new ArrayList<>();
+
+    MappedJournal(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes - segmentBytes % RECORD_SIZE;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Replays every valid record, in sequence order.
+     * @param consumer receives each record.
+     * @return the highest sequence found, or 0 if the journal is empty.
+     */
+    long replay(Consumer<JournalRecord> consumer) {
+        long last = 0;
+        for (Path path : segments()) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (buffer.remaining() >= RECORD_SIZE) {
+                    JournalRecord record = read(buffer);
+                    if (record == null) {
+                        break;
+                    }
+                    consumer.accept(record);
+                    last = record.sequence();
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Appends a record to the current segment, opening a new one when it is full.
+     * The record is only durable after {@link #force()}.
+     */
+    void append(JournalRecord record) {
+        if (segment == null || segment.remaining() < RECORD_SIZE) {
+            roll(record.sequence());
+        }
+        BigDecimal amount = record.amount();
+        long unscaled = amount.unscaledValue().longValueExact();
+        int start = segment.position();
+        segment.putLong(record.sequence());
+        segment.putLong(record.fromAccountId());
+        segment.putLong(record.toAccountId());
+        segment.putLong(unscaled);
+        segment.putLong(record.timestamp());
+        segment.putInt(amount.scale());
+        segment.putInt(checksum(segment, start));
+    }
+
+    /**
+     * Flushes the appended records to the storage device.
+     */
+    void force() {
+        if (segment != null) {
+            segment.force();
+        }
+    }
+
+    /**
+     * Remembers where the next append goes, so a group whose {@link #force()} failed can be undone.
+     */
+    Mark mark() {
+        rolled.clear();
+        return new Mark(segment, segment == null ? 0 : segment.position());
+    }
+
+    /**
+     * Undoes every append made since the mark: the segments opened since then are deleted and the
+     * records written to the marked segment are zeroed and flushed, so a replay stops before them.
+     * @throws UncheckedIOException if the records could not be invalidated on disk.
+     */
+    void rewind(Mark mark) {
+        for (Path path : rolled) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        rolled.clear();
+        MappedByteBuffer marked = mark.segment();
+        if (marked != null) {
+            for (int i = mark.position(); i < marked.position(); i++) {
+                marked.put(i, (byte) 0);
+            }
+            marked.force();
+            marked.position(mark.position());
+        }
+        segment = marked;
+    }
+
+    /**
+     * Deletes the segments whose records are all at or below the given sequence.
+     * The current segment is always kept.
+     */
+    void truncate(long projectedSequence) {
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (firstSequence(segments.get(i + 1)) - 1 > projectedSequence) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(segments.get(i));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    private void roll(long firstSequence) {
+        if (segment != null) {
+            segment.force();
+        }
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            rolled.add(path);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static JournalRecord read(MappedByteBuffer buffer) {
+        int start = buffer.position();
+        long sequence = buffer.getLong();
+        long from = buffer.getLong();
+        long to = buffer.getLong();
+        long unscaled = buffer.getLong();
+        long timestamp = buffer.getLong();
+        int scale = buffer.getInt();
+        int crc = buffer.getInt();
+        if (sequence == 0 || crc != checksum(buffer, start)) {
+            return null;
+        }
+        return new JournalRecord(sequence, from, to, new BigDecimal(BigInteger.valueOf(unscaled), scale), timestamp);
+    }
+
+    private static int checksum(MappedByteBuffer buffer, int start) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(start, RECORD_SIZE - Integer.BYTES));
+        return (int) crc.getValue();
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().startsWith(PREFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    record Mark(MappedByteBuffer segment, int position) {
+    }
+}
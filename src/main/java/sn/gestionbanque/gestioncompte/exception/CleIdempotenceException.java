@@ -0,0 +1,16 @@
+package sn.gestionbanque.gestioncompte.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class CleIdempotenceException extends RuntimeException {
+    private final HttpStatus status;
+
+    public CleIdempotenceException(String message, HttpStatus status) {
+        super(message);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
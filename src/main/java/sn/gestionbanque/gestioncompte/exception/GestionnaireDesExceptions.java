@@ -1,5 +1,6 @@
 package sn.gestionbanque.gestioncompte.exception;
 
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -9,6 +10,7 @@ import org.springframework.web.bind.annotation.ResponseBody;
 
 import jakarta.validation.ConstraintViolationException;
 import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
 
 @ControllerAdvice
 public class GestionnaireDesExceptions {
@@ -32,5 +34,35 @@ public class GestionnaireDesExceptions {
         return new ResponseEntity<>("Account not found", HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseBody
+    public ResponseEntity<String> handleIllegalArgument(IllegalArgumentException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseBody
+    public ResponseEntity<String> handleRejectedExecution(RejectedExecutionException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler(TransfertIncertainException.class)
+    @ResponseBody
+    public ResponseEntity<String> handleTransfertIncertain(TransfertIncertainException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.GATEWAY_TIMEOUT);
+    }
+
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    @ResponseBody
+    public ResponseEntity<String> handleConcurrencyFailure(ConcurrencyFailureException ex) {
+        return new ResponseEntity<>("Account is busy, please retry the operation", HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(CleIdempotenceException.class)
+    @ResponseBody
+    public ResponseEntity<String> handleIdempotencyKey(CleIdempotenceException ex) {
+        return new ResponseEntity<>(ex.getMessage(), ex.getStatus());
+    }
+
     // Ajoutez d'autres gestionnaires d'exceptions si nécessaire
 }
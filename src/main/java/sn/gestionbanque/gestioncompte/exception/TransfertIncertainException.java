@@ -0,0 +1,10 @@
+package sn.gestionbanque.gestioncompte.exception;
+
+/**
+ * The caller stopped waiting for a transfer that may still be applied: its outcome is unknown.
+ */
+public class TransfertIncertainException extends RuntimeException {
+    public TransfertIncertainException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
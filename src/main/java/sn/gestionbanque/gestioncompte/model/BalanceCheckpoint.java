@@ -0,0 +1,66 @@
+package sn.gestionbanque.gestioncompte.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Balance of an account at a point in time, taken periodically so that a historical balance
+ * only needs the transactions since the nearest checkpoint.
+ */
+@Entity
+@Table(name = "balance_checkpoints")
+@IdClass(BalanceCheckpoint.Key.class)
+public class BalanceCheckpoint {
+
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "checkpoint_at")
+    private LocalDateTime checkpointAt;
+
+    @Column(name = "balance", nullable = false)
+    private BigDecimal balance;
+
+    // Getters and setters
+    public Long getAccountId() { return accountId; }
+    public void setAccountId(Long accountId) { this.accountId = accountId; }
+
+    public LocalDateTime getCheckpointAt() { return checkpointAt; }
+    public void setCheckpointAt(LocalDateTime checkpointAt) { this.checkpointAt = checkpointAt; }
+
+    public BigDecimal getBalance() { return balance; }
+    public void setBalance(BigDecimal balance) { this.balance = balance; }
+
+    public static class Key implements Serializable {
+        private Long accountId;
+        private LocalDateTime checkpointAt;
+
+        public Key() {
+        }
+
+        public Key(Long accountId, LocalDateTime checkpointAt) {
+            this.accountId = accountId;
+            this.checkpointAt = checkpointAt;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && Objects.equals(accountId, other.accountId)
+                    && Objects.equals(checkpointAt, other.checkpointAt);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, checkpointAt);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package sn.gestionbanque.gestioncompte.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Money in and out of an account for one day, part of the read model.
+ * Rolling totals are summed over at most a month of these rows.
+ */
+@Entity
+@Table(name = "account_daily_flows")
+@IdClass(FluxJournalier.Cle.class)
+public class FluxJournalier {
+
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "flow_day")
+    private LocalDate day;
+
+    @Column(name = "total_in", nullable = false)
+    private BigDecimal totalIn;
+
+    @Column(name = "total_out", nullable = false)
+    private BigDecimal totalOut;
+
+    // Getters and setters
+    public Long getAccountId() { return accountId; }
+    public void setAccountId(Long accountId) { this.accountId = accountId; }
+
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+
+    public BigDecimal getTotalIn() { return totalIn; }
+    public void setTotalIn(BigDecimal totalIn) { this.totalIn = totalIn; }
+
+    public BigDecimal getTotalOut() { return totalOut; }
+    public void setTotalOut(BigDecimal totalOut) { this.totalOut = totalOut; }
+
+    public static class Cle implements Serializable {
+        private Long accountId;
+        private LocalDate day;
+
+        public Cle() {
+        }
+
+        public Cle(Long accountId, LocalDate day) {
+            this.accountId = accountId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Cle other && Objects.equals(accountId, other.accountId) && Objects.equals(day, other.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, day);
+        }
+    }
+}
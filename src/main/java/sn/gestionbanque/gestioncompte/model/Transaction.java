@@ -1,10 +1,19 @@
 package sn.gestionbanque.gestioncompte.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.ConstraintMode;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.ForeignKey;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Column;
 import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotNull;
@@ -12,17 +21,34 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        // Keyset pagination of an account history, newest first
+        @Index(name = "idx_transactions_account_date_id", columnList = "account_id, transaction_date, id")
+})
 public class Transaction {
 
+    public enum Type { DEPOSIT, WITHDRAWAL }
+
+    // Pooled allocation (table-emulated sequence on MySQL): one round trip reserves
+    // a block of ids, which lets Hibernate batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 100)
     private Long id;
 
+    // Lazy: history reads go through TransactionDto projections and never need the account row.
+    // No foreign key: MySQL does not allow one on a partitioned table (see partition_transactions.sql)
     @NotNull
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "account_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    @JsonIgnore
     private CompteBancaire account;
 
+    @NotNull
+    @Enumerated(EnumType.STRING)
+    @Column(name = "transaction_type", nullable = false, columnDefinition = "enum('DEPOSIT','WITHDRAWAL')")
+    private Type type;
+
     @NotNull
     @Column(name = "amount", nullable = false)
     private BigDecimal amount;
@@ -38,6 +64,9 @@ public class Transaction {
     public CompteBancaire getAccount() { return account; }
     public void setAccount(CompteBancaire account) { this.account = account; }
 
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
     public BigDecimal getAmount() { return amount; }
     public void setAmount(BigDecimal amount) { this.amount = amount; }
 
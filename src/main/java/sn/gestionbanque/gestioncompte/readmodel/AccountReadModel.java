@@ -0,0 +1,66 @@
+package sn.gestionbanque.gestioncompte.readmodel;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import sn.gestionbanque.gestioncompte.dto.CompteLecture;
+import sn.gestionbanque.gestioncompte.dto.FluxTotaux;
+import sn.gestionbanque.gestioncompte.exception.CompteInexistantException;
+import sn.gestionbanque.gestioncompte.model.ResumeCompte;
+import sn.gestionbanque.gestioncompte.repository.FluxJournalierRepository;
+import sn.gestionbanque.gestioncompte.repository.ResumeCompteRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Read side of the accounts: serves the read model maintained by {@link AccountReadModelProjector}.
+ * Values may lag the ledger by the projection delay, usually a few milliseconds.
+ */
+@Service
+public class AccountReadModel {
+
+    private static final int ROLLING_DAYS = 30;
+
+    @Autowired
+    private ResumeCompteRepository resumeRepository;
+
+    @Autowired
+    private FluxJournalierRepository fluxRepository;
+
+    @Autowired
+    private AccountReadModelProjector projector;
+
+    /**
+     * Retrieves an account from the read model.
+     * @param accountId the ID of the account.
+     * @return the account, with its 30-day totals.
+     * @throws CompteInexistantException if the account is not in the read model.
+     */
+    @Transactional(readOnly = true)
+    public CompteLecture getAccount(Long accountId) {
+        ResumeCompte resume = resumeRepository.findById(accountId)
+                .orElseThrow(() -> new CompteInexistantException("Account not found with id: " + accountId));
+        FluxTotaux flows = fluxRepository.sumSince(accountId, LocalDate.now().minusDays(ROLLING_DAYS - 1));
+        return new CompteLecture(resume.getAccountId(), resume.getBalance(), resume.getLastTransactionAt(),
+                resume.getTransactionCount(),
+                flows.totalIn() == null ? BigDecimal.ZERO : flows.totalIn(),
+                flows.totalOut() == null ? BigDecimal.ZERO : flows.totalOut());
+    }
+
+    /**
+     * Rebuilds the read model from the accounts and the ledger.
+     * @return completes when the rebuild has committed.
+     */
+    public CompletableFuture<Void> rebuild() {
+        return projector.rebuild();
+    }
+
+    @Scheduled(cron = "0 15 0 * * *")
+    void purgeOldFlows() {
+        fluxRepository.deleteBefore(LocalDate.now().minusDays(ROLLING_DAYS + 1));
+    }
+}
@@ -0,0 +1,381 @@
+package sn.gestionbanque.gestioncompte.readmodel;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the account read model ({@code account_read_model} and {@code account_daily_flows})
+ * from ledger events.
+ * Events are queued once their transaction has committed and applied by a single thread, in
+ * batches: the deltas of a batch are summed per account and per day, then applied as commutative
+ * upserts ({@code x = x + delta}) in one transaction. A failed batch is rolled back and retried.
+ * Transfers therefore never touch the read model rows, and reads of the model never wait on
+ * transfer locks.
+ * The queue is not durable: events lost with a stopped instance or dropped on a full queue are
+ * recovered by rebuilding the model, which happens on every start and after any drop. A rebuild
+ * reads every account and transaction (see {@link #doRebuild()}).
+ */
+@Component
+public class AccountReadModelProjector {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountReadModelProjector.class);
+
+    private static final String UPSERT_SUMMARY = "insert into account_read_model "
+            + "(account_id, balance, last_transaction_at, transaction_count) values (?, ?, ?, ?) "
+            + "on duplicate key update balance = balance + values(balance), "
+            + "last_transaction_at = greatest(coalesce(last_transaction_at, values(last_transaction_at)), "
+            + "coalesce(values(last_transaction_at), last_transaction_at)), "
+            + "transaction_count = transaction_count + values(transaction_count)";
+
+    private static final String UPSERT_FLOW = "insert into account_daily_flows "
+            + "(account_id, flow_day, total_in, total_out) values (?, ?, ?, ?) "
+            + "on duplicate key update total_in = total_in + values(total_in), total_out = total_out + values(total_out)";
+
+    // One chunk of accounts after a keyset; each subquery reads the (account_id, transaction_date, id) index
+    private static final String SUMMARY_CHUNK_SQL = "select a.id, a.balance, "
+            + "(select max(t.transaction_date) from transactions t where t.account_id = a.id), "
+            + "(select count(*) from transactions t where t.account_id = a.id) "
+            + "from bank_accounts a where a.id > ? order by a.id limit ?";
+
+    private static final String FLOW_CHUNK_SQL = "select account_id, date(transaction_date), "
+            + "sum(case when amount > 0 then amount else 0 end), sum(case when amount < 0 then -amount else 0 end) "
+            + "from transactions where account_id > ? and account_id <= ? and transaction_date >= ? "
+            + "group by account_id, date(transaction_date)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${banque.read-model.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${banque.read-model.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${banque.read-model.flow-retention-days:31}")
+    private int flowRetentionDays;
+
+    private final MeterRegistry registry;
+    private final Counter dropped;
+    private final TransactionTemplate snapshotTransaction;
+    private BlockingQueue<LedgerEvent> queue;
+    private volatile CompletableFuture<Void> rebuildRequest;
+    private Thread worker;
+    private volatile boolean running;
+
+    public AccountReadModelProjector(MeterRegistry registry, PlatformTransactionManager transactionManager) {
+        this.registry = registry;
+        // A read-write transaction, so that it is served by the primary; its reads still take no locks
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.dropped = Counter.builder("banque.read-model.dropped")
+                .description("Ledger events dropped because the projection queue was full; each drop triggers a rebuild")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        Gauge.builder("banque.read-model.pending", queue, BlockingQueue::size)
+                .description("Ledger events waiting to be applied to the read model")
+                .register(registry);
+        running = true;
+        worker = new Thread(this::run, "read-model-projector");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * Queues an event once its transaction has committed (immediately if none is active).
+     * Never blocks the publisher: if the queue is full the event is dropped, counted, and a rebuild
+     * is requested to resynchronize the model.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void on(LedgerEvent event) {
+        if (!queue.offer(event)) {
+            dropped.increment();
+            if (rebuildRequest == null) {
+                log.warn("Read model queue full, event dropped; rebuilding the read model");
+                rebuildRequest = new CompletableFuture<>();
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the read model from {@code bank_accounts} and {@code transactions}, on the projector thread.
+     * Events are neither lost nor counted twice: those already in the rebuilt rows are skipped.
+     * @return completes when the rebuild has committed and the events it did not contain are applied.
+     */
+    public CompletableFuture<Void> rebuild() {
+        CompletableFuture<Void> request = new CompletableFuture<>();
+        rebuildRequest = request;
+        return request;
+    }
+
+    private void run() {
+        try {
+            // Events of the previous run may have been lost with it: start from the tables
+            rebuildAndComplete(new CompletableFuture<>());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        List<LedgerEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                CompletableFuture<Void> request = rebuildRequest;
+                if (request != null) {
+                    rebuildRequest = null;
+                    rebuildAndComplete(request);
+                    continue;
+                }
+                LedgerEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                applyWithRetry(batch);
+                batch.clear();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void applyWithRetry(List<LedgerEvent> batch) throws InterruptedException {
+        while (running) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(batch));
+                return;
+            } catch (RuntimeException ex) {
+                log.warn("Read model projection of {} events failed, retrying", batch.size(), ex);
+                Thread.sleep(1000);
+            }
+        }
+    }
+
+    private void rebuildAndComplete(CompletableFuture<Void> request) throws InterruptedException {
+        List<LedgerEvent> unseen;
+        try {
+            unseen = doRebuild();
+        } catch (RuntimeException ex) {
+            log.error("Read model rebuild failed", ex);
+            request.completeExceptionally(ex);
+            return;
+        }
+        applyWithRetry(unseen);
+        request.complete(null);
+    }
+
+    /**
+     * Replaces the read model with one computed from a consistent snapshot of the source tables.
+     * The snapshot is read with plain (non-locking) reads, so transfers are never blocked by a
+     * rebuild. Accounts are read in keyset chunks of {@code banque.read-model.batch-size}, and the
+     * rows of a chunk are written before the next one is read, so memory holds one chunk at a time.
+     * The whole rebuild is still one transaction: it lasts as long as reading every account and
+     * transaction, and InnoDB keeps the undo history of that snapshot until it commits.
+     * Events already queued are dropped, as their transactions committed before the snapshot.
+     * Events queued during the rebuild may or may not be in the snapshot: those whose rows it does
+     * not contain are returned, to be applied on top of it.
+     * @return the events committed after the snapshot was taken.
+     */
+    List<LedgerEvent> doRebuild() {
+        List<LedgerEvent> unseen = new ArrayList<>();
+        snapshotTransaction.executeWithoutResult(status -> {
+            queue.clear();
+            jdbcTemplate.update("delete from account_daily_flows");
+            jdbcTemplate.update("delete from account_read_model");
+            Date flowsFrom = Date.valueOf(LocalDate.now().minusDays(flowRetentionDays));
+            int accounts = 0;
+            long lastId = 0;
+            while (true) {
+                List<Object[]> summaries = jdbcTemplate.query(SUMMARY_CHUNK_SQL,
+                        (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getBigDecimal(2), rs.getTimestamp(3), rs.getLong(4)},
+                        lastId, batchSize);
+                if (summaries.isEmpty()) {
+                    break;
+                }
+                long chunkEnd = (Long) summaries.get(summaries.size() - 1)[0];
+                List<Object[]> flows = jdbcTemplate.query(FLOW_CHUNK_SQL,
+                        (rs, rowNum) -> new Object[] {rs.getLong(1), rs.getDate(2), rs.getBigDecimal(3), rs.getBigDecimal(4)},
+                        lastId, chunkEnd, flowsFrom);
+                insertAll("insert into account_read_model (account_id, balance, last_transaction_at, transaction_count) "
+                        + "values (?, ?, ?, ?)", summaries);
+                insertAll("insert into account_daily_flows (account_id, flow_day, total_in, total_out) "
+                        + "values (?, ?, ?, ?)", flows);
+                accounts += summaries.size();
+                lastId = chunkEnd;
+            }
+
+            List<LedgerEvent> queued = new ArrayList<>();
+            queue.drainTo(queued);
+            unseen.addAll(notInSnapshot(queued));
+            log.info("Read model rebuilt for {} accounts", accounts);
+        });
+        log.info("{} events applied on top of the rebuilt read model", unseen.size());
+        return unseen;
+    }
+
+    private void insertAll(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + batchSize, rows.size())));
+        }
+    }
+
+    /**
+     * Keeps the events whose rows are not visible in the current snapshot.
+     */
+    List<LedgerEvent> notInSnapshot(List<LedgerEvent> events) {
+        Set<Long> transactionIds = new HashSet<>();
+        Set<Long> accountIds = new HashSet<>();
+        for (LedgerEvent event : events) {
+            if (event instanceof LedgerEvent.Movements movements) {
+                movements.movements().forEach(movement -> transactionIds.add(movement.transactionId()));
+            } else if (event instanceof LedgerEvent.AccountOpened opened) {
+                accountIds.add(opened.accountId());
+            }
+        }
+        Set<Long> seenTransactions = visible("transactions", transactionIds);
+        Set<Long> seenAccounts = visible("bank_accounts", accountIds);
+
+        List<LedgerEvent> unseen = new ArrayList<>();
+        for (LedgerEvent event : events) {
+            if (event instanceof LedgerEvent.Movements movements) {
+                List<LedgerEvent.Movement> remaining = movements.movements().stream()
+                        .filter(movement -> !seenTransactions.contains(movement.transactionId()))
+                        .toList();
+                if (!remaining.isEmpty()) {
+                    unseen.add(new LedgerEvent.Movements(remaining));
+                }
+            } else if (event instanceof LedgerEvent.AccountOpened opened) {
+                if (!seenAccounts.contains(opened.accountId())) {
+                    unseen.add(opened);
+                }
+            } else {
+                unseen.add(event);
+            }
+        }
+        return unseen;
+    }
+
+    private Set<Long> visible(String table, Set<Long> ids) {
+        Set<Long> found = new HashSet<>();
+        List<Long> all = new ArrayList<>(ids);
+        for (int from = 0; from < all.size(); from += batchSize) {
+            List<Long> chunk = all.subList(from, Math.min(from + batchSize, all.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            found.addAll(jdbcTemplate.queryForList("select id from " + table + " where id in (" + placeholders + ")",
+                    Long.class, chunk.toArray()));
+        }
+        return found;
+    }
+
+    void apply(List<LedgerEvent> batch) {
+        Map<Long, SummaryDelta> summaries = new HashMap<>();
+        Map<FlowKey, BigDecimal[]> flows = new HashMap<>();
+        for (LedgerEvent event : batch) {
+            if (event instanceof LedgerEvent.Movements movements) {
+                for (LedgerEvent.Movement movement : movements.movements()) {
+                    summaries.computeIfAbsent(movement.accountId(), id -> new SummaryDelta()).add(movement);
+                    BigDecimal[] flow = flows.computeIfAbsent(
+                            new FlowKey(movement.accountId(), movement.date().toLocalDate()),
+                            key -> new BigDecimal[] {BigDecimal.ZERO, BigDecimal.ZERO});
+                    if (movement.amount().signum() >= 0) {
+                        flow[0] = flow[0].add(movement.amount());
+                    } else {
+                        flow[1] = flow[1].subtract(movement.amount());
+                    }
+                }
+            } else if (event instanceof LedgerEvent.AccountOpened opened) {
+                summaries.computeIfAbsent(opened.accountId(), id -> new SummaryDelta()).open(opened.balance());
+            } else if (event instanceof LedgerEvent.AccountClosed closed) {
+                // Deltas of the account queued before its deletion must not recreate its rows
+                write(summaries, flows);
+                summaries.clear();
+                flows.clear();
+                jdbcTemplate.update("delete from account_daily_flows where account_id = ?", closed.accountId());
+                jdbcTemplate.update("delete from account_read_model where account_id = ?", closed.accountId());
+            }
+        }
+        write(summaries, flows);
+    }
+
+    private void write(Map<Long, SummaryDelta> summaries, Map<FlowKey, BigDecimal[]> flows) {
+        List<Object[]> summaryArgs = new ArrayList<>(summaries.size());
+        summaries.forEach((accountId, delta) -> summaryArgs.add(new Object[] {
+                accountId, delta.balance, delta.lastAt == null ? null : Timestamp.valueOf(delta.lastAt), delta.count}));
+        List<Object[]> flowArgs = new ArrayList<>(flows.size());
+        flows.forEach((key, flow) -> flowArgs.add(new Object[] {
+                key.accountId(), Date.valueOf(key.day()), flow[0], flow[1]}));
+        if (!summaryArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_SUMMARY, summaryArgs);
+        }
+        if (!flowArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_FLOW, flowArgs);
+        }
+    }
+
+    private record FlowKey(long accountId, LocalDate day) {
+    }
+
+    private static final class SummaryDelta {
+        private BigDecimal balance = BigDecimal.ZERO;
+        private LocalDateTime lastAt;
+        private long count;
+
+        private void open(BigDecimal openingBalance) {
+            balance = balance.add(openingBalance);
+        }
+
+        private void add(LedgerEvent.Movement movement) {
+            balance = balance.add(movement.amount());
+            count++;
+            if (lastAt == null || movement.date().isAfter(lastAt)) {
+                lastAt = movement.date();
+            }
+        }
+    }
+}
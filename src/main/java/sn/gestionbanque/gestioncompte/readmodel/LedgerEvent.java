@@ -0,0 +1,37 @@
+package sn.gestionbanque.gestioncompte.readmodel;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Change of the ledger, published by the write side and applied to the read model once the
+ * publishing transaction has committed.
+ */
+public sealed interface LedgerEvent {
+
+    /**
+     * Ledger rows written in one transaction.
+     */
+    record Movements(List<Movement> movements) implements LedgerEvent {
+    }
+
+    /**
+     * A ledger row: a signed amount (negative for a debit) on an account.
+     * The row id tells a rebuild whether the movement is already in the tables it read.
+     */
+    record Movement(long transactionId, long accountId, BigDecimal amount, LocalDateTime date) {
+    }
+
+    /**
+     * An account was created with an opening balance, which has no ledger row.
+     */
+    record AccountOpened(long accountId, BigDecimal balance) implements LedgerEvent {
+    }
+
+    /**
+     * An account was deleted.
+     */
+    record AccountClosed(long accountId) implements LedgerEvent {
+    }
+}
@@ -0,0 +1,38 @@
+package sn.gestionbanque.gestioncompte.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import sn.gestionbanque.gestioncompte.model.BalanceCheckpoint;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, BalanceCheckpoint.Key> {
+
+    /**
+     * @return the latest checkpoint of an account taken at or before the given time.
+     */
+    Optional<BalanceCheckpoint> findFirstByAccountIdAndCheckpointAtLessThanEqualOrderByCheckpointAtDesc(
+            Long accountId, LocalDateTime at);
+
+    /**
+     * @return the earliest checkpoint of an account taken after the given time.
+     */
+    Optional<BalanceCheckpoint> findFirstByAccountIdAndCheckpointAtGreaterThanOrderByCheckpointAtAsc(
+            Long accountId, LocalDateTime at);
+
+    boolean existsByCheckpointAt(LocalDateTime checkpointAt);
+
+    /**
+     * @return the time of the latest checkpoint run, if any.
+     */
+    @Query("select max(c.checkpointAt) from BalanceCheckpoint c")
+    Optional<LocalDateTime> findLatestCheckpointAt();
+
+    /**
+     * @return the time of the earliest checkpoint run, if any.
+     */
+    @Query("select min(c.checkpointAt) from BalanceCheckpoint c")
+    Optional<LocalDateTime> findEarliestCheckpointAt();
+}
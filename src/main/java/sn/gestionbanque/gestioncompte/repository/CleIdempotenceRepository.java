@@ -0,0 +1,40 @@
+package sn.gestionbanque.gestioncompte.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import sn.gestionbanque.gestioncompte.model.CleIdempotence;
+
+import java.time.LocalDateTime;
+
+public interface CleIdempotenceRepository extends JpaRepository<CleIdempotence, String> {
+
+    /**
+     * Claims a key. Unlike {@code save}, which merges an entity with an assigned id,
+     * this always inserts and fails with a duplicate key if the key was already claimed.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "insert into idempotency_keys (idempotency_key, fingerprint, created_at) "
+            + "values (:key, :fingerprint, :createdAt)", nativeQuery = true)
+    void claim(@Param("key") String key,
+               @Param("fingerprint") String fingerprint,
+               @Param("createdAt") LocalDateTime createdAt);
+
+    @Modifying
+    @Transactional
+    @Query("update CleIdempotence k set k.responseStatus = :status, k.responseBody = :body where k.key = :key")
+    void complete(@Param("key") String key, @Param("status") int status, @Param("body") String body);
+
+    /**
+     * Deletes the keys whose response was stored before the limit. Keys without a response are kept:
+     * their request may have been applied, so executing it again could apply it twice.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from CleIdempotence k where k.createdAt < :limit and k.responseStatus is not null")
+    int deleteCompletedBefore(@Param("limit") LocalDateTime limit);
+}
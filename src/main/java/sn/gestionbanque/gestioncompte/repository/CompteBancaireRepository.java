@@ -1,8 +1,117 @@
 package sn.gestionbanque.gestioncompte.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import sn.gestionbanque.gestioncompte.dto.BalanceSnapshot;
+import sn.gestionbanque.gestioncompte.dto.CompteResume;
 import sn.gestionbanque.gestioncompte.model.CompteBancaire;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 public interface CompteBancaireRepository extends JpaRepository<CompteBancaire, Long> {
+
+    /**
+     * Lists accounts without counting them: one extra row is read to know whether a next slice exists.
+     * @param pageable the page to read.
+     * @return the slice of accounts.
+     */
+    Slice<CompteBancaire> findAllBy(Pageable pageable);
+
+    /**
+     * Keyset listing by id: the accounts that follow the given id, in id order.
+     * @param id the id of the last account of the previous page (0 for the first page).
+     * @param pageable limits the number of rows; its page number must be 0.
+     * @return the accounts of the page.
+     */
+    List<CompteBancaire> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Keyset listing by account number, served by its unique index.
+     * @param accountNumber the account number of the last account of the previous page (empty for the first page).
+     * @param pageable limits the number of rows; its page number must be 0.
+     * @return the accounts of the page.
+     */
+    List<CompteBancaire> findByAccountNumberGreaterThanOrderByAccountNumberAsc(String accountNumber, Pageable pageable);
+
+    /**
+     * Reads only the balance and version of an account, without materializing a managed entity.
+     * @param id the ID of the account.
+     * @return the balance snapshot, if the account exists.
+     */
+    @Query("select new sn.gestionbanque.gestioncompte.dto.BalanceSnapshot(c.balance, c.version) "
+            + "from CompteBancaire c where c.id = :id")
+    Optional<BalanceSnapshot> findBalanceById(@Param("id") Long id);
+
+    /**
+     * Reads the summary columns of an account, without materializing a managed entity.
+     * @param id the ID of the account.
+     * @return the summary, if the account exists.
+     */
+    @Query("select new sn.gestionbanque.gestioncompte.dto.CompteResume(c.id, c.accountNumber, c.accountHolderName, c.balance) "
+            + "from CompteBancaire c where c.id = :id")
+    Optional<CompteResume> findSummaryById(@Param("id") Long id);
+
+    /**
+     * Loads an account and takes an exclusive row lock on it ({@code SELECT ... FOR UPDATE}).
+     * Must be called inside a transaction; the lock is held until commit or rollback.
+     * @param id the ID of the account.
+     * @return the locked account, if it exists.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from CompteBancaire c where c.id = :id")
+    Optional<CompteBancaire> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Loads and locks several accounts in one statement. Rows are read, and therefore locked,
+     * in ascending id order.
+     * @param ids the IDs of the accounts.
+     * @return the locked accounts that exist, sorted by id.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from CompteBancaire c where c.id in :ids order by c.id")
+    List<CompteBancaire> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Debits an account in a single statement, only if its balance covers the amount.
+     * The version is bumped so that concurrent optimistic transfers see the change.
+     * @param id the ID of the account.
+     * @param amount the amount to debit.
+     * @return 1 if the account was debited, 0 if it does not exist or has insufficient funds.
+     */
+    @Modifying
+    @Query("update CompteBancaire c set c.balance = c.balance - :amount, c.version = c.version + 1 "
+            + "where c.id = :id and c.balance >= :amount")
+    int debit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Credits an account in a single statement.
+     * @param id the ID of the account.
+     * @param amount the amount to credit.
+     * @return 1 if the account was credited, 0 if it does not exist.
+     */
+    @Modifying
+    @Query("update CompteBancaire c set c.balance = c.balance + :amount, c.version = c.version + 1 "
+            + "where c.id = :id")
+    int credit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    /**
+     * Adds a signed delta to an account balance in a single statement, without any funds check.
+     * @param id the ID of the account.
+     * @param delta the amount to add (negative for a debit).
+     * @return 1 if the account was updated, 0 if it does not exist.
+     */
+    @Modifying
+    @Query("update CompteBancaire c set c.balance = c.balance + :delta, c.version = c.version + 1 "
+            + "where c.id = :id")
+    int adjustBalance(@Param("id") Long id, @Param("delta") BigDecimal delta);
 }
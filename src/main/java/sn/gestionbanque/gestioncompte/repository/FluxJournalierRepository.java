@@ -0,0 +1,30 @@
+package sn.gestionbanque.gestioncompte.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import sn.gestionbanque.gestioncompte.dto.FluxTotaux;
+import sn.gestionbanque.gestioncompte.model.FluxJournalier;
+
+import java.time.LocalDate;
+
+public interface FluxJournalierRepository extends JpaRepository<FluxJournalier, FluxJournalier.Cle> {
+
+    /**
+     * Sums the daily flows of an account from a given day.
+     * @param accountId the ID of the account.
+     * @param since the first day included.
+     * @return the totals; both are {@code null} if there is no flow in the period.
+     */
+    @Query("select new sn.gestionbanque.gestioncompte.dto.FluxTotaux(sum(f.totalIn), sum(f.totalOut)) "
+            + "from FluxJournalier f where f.accountId = :accountId and f.day >= :since")
+    FluxTotaux sumSince(@Param("accountId") Long accountId, @Param("since") LocalDate since);
+
+    @Modifying
+    @Transactional
+    @Query("delete from FluxJournalier f where f.day < :limit")
+    int deleteBefore(@Param("limit") LocalDate limit);
+}
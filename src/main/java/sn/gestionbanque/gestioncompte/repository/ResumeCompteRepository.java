@@ -0,0 +1,8 @@
+package sn.gestionbanque.gestioncompte.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import sn.gestionbanque.gestioncompte.model.ResumeCompte;
+
+public interface ResumeCompteRepository extends JpaRepository<ResumeCompte, Long> {
+}
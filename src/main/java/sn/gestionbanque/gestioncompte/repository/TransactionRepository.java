@@ -3,9 +3,75 @@ package sn.gestionbanque.gestioncompte.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import sn.gestionbanque.gestioncompte.dto.TransactionDto;
 import sn.gestionbanque.gestioncompte.model.Transaction;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
-    Page<Transaction> findByAccountId(Long accountId, Pageable pageable);
-}
\ No newline at end of file
+    // Every query carries a lower bound on transaction_date (at least the retention horizon),
+    // so that MySQL prunes the monthly partitions of the table
+
+    /**
+     * Transaction history of an account, as lean rows: the account itself is neither joined nor loaded.
+     */
+    @Query(value = "select new sn.gestionbanque.gestioncompte.dto.TransactionDto(t.id, t.amount, t.transactionDate, t.type) "
+            + "from Transaction t where t.account.id = :accountId and t.transactionDate >= :since",
+            countQuery = "select count(t) from Transaction t where t.account.id = :accountId and t.transactionDate >= :since")
+    Page<TransactionDto> findByAccountId(@Param("accountId") Long accountId,
+                                         @Param("since") LocalDateTime since,
+                                         Pageable pageable);
+
+    /**
+     * First page of the keyset listing: latest transactions of an account, newest first.
+     * Served by the index on {@code (account_id, transaction_date, id)}; no count query is run.
+     */
+    @Query("select new sn.gestionbanque.gestioncompte.dto.TransactionDto(t.id, t.amount, t.transactionDate, t.type) "
+            + "from Transaction t where t.account.id = :accountId and t.transactionDate >= :since "
+            + "order by t.transactionDate desc, t.id desc")
+    List<TransactionDto> findLatestByAccountId(@Param("accountId") Long accountId,
+                                               @Param("since") LocalDateTime since,
+                                               Pageable pageable);
+
+    /**
+     * Next page of the keyset listing: transactions strictly older than {@code (date, id)}, newest first.
+     * Seeks directly into the index, so the cost does not depend on how deep the page is.
+     */
+    @Query("select new sn.gestionbanque.gestioncompte.dto.TransactionDto(t.id, t.amount, t.transactionDate, t.type) "
+            + "from Transaction t where t.account.id = :accountId "
+            + "and t.transactionDate >= :since and t.transactionDate <= :date "
+            + "and (t.transactionDate < :date or (t.transactionDate = :date and t.id < :id)) "
+            + "order by t.transactionDate desc, t.id desc")
+    List<TransactionDto> findByAccountIdBefore(@Param("accountId") Long accountId,
+                                               @Param("since") LocalDateTime since,
+                                               @Param("date") LocalDateTime date,
+                                               @Param("id") Long id,
+                                               Pageable pageable);
+
+    /**
+     * Sums the amounts of an account's transactions dated in {@code (from, to]}.
+     * A range scan of the {@code (account_id, transaction_date, id)} index.
+     */
+    @Query("select coalesce(sum(t.amount), 0) from Transaction t where t.account.id = :accountId "
+            + "and t.transactionDate > :from and t.transactionDate <= :to")
+    BigDecimal sumAmountBetween(@Param("accountId") Long accountId,
+                                @Param("from") LocalDateTime from,
+                                @Param("to") LocalDateTime to);
+
+    /**
+     * Deletes the transactions of an account. The table has no foreign key (it may be partitioned),
+     * so this replaces the former {@code ON DELETE CASCADE}.
+     * Unlike the other queries it carries no date bound: rows older than the retention horizon may
+     * still be stored until their partition is removed, and must not outlive the account. Every
+     * partition is therefore probed, through its {@code account_id} index.
+     */
+    @Modifying
+    @Query("delete from Transaction t where t.account.id = :accountId")
+    int deleteByAccountId(@Param("accountId") Long accountId);
+}
@@ -0,0 +1,108 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import sn.gestionbanque.gestioncompte.dto.TransferStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs transfers in the background on a bounded executor and keeps their status,
+ * so the HTTP thread is released as soon as the transfer is queued.
+ */
+@Service
+public class AsyncTransferService {
+
+    @Autowired
+    private CompteBancaireService service;
+
+    @Value("${banque.transfer.async.status-ttl-minutes:60}")
+    private long statusTtlMinutes;
+
+    private final Map<String, TransferStatus> statuses = new ConcurrentHashMap<>();
+
+    /**
+     * Bounded executor owned by this service (not exposed as a bean, so Spring Boot keeps its
+     * default application executor). When its queue is full, submissions are rejected (503)
+     * instead of piling up on the Tomcat pool.
+     */
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    public AsyncTransferService(@Value("${banque.transfer.async.threads:16}") int threads,
+                                @Value("${banque.transfer.async.queue-capacity:5000}") int queueCapacity) {
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("transfer-async-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Validates and queues a transfer.
+     * @param fromAccountId the ID of the account from which the amount will be transferred.
+     * @param toAccountId the ID of the account to which the amount will be transferred.
+     * @param amount the amount to be transferred.
+     * @return the pending status, with the transfer id.
+     * @throws IllegalArgumentException if the amount is not positive.
+     * @throws RejectedExecutionException if the transfer queue is full.
+     */
+    public TransferStatus submit(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("The amount must be positive");
+        }
+        String transferId = UUID.randomUUID().toString();
+        TransferStatus pending = new TransferStatus(transferId, fromAccountId, toAccountId, amount,
+                TransferStatus.State.PENDING, null, LocalDateTime.now(), null);
+        statuses.put(transferId, pending);
+        try {
+            executor.execute(() -> run(pending));
+        } catch (RejectedExecutionException ex) {
+            statuses.remove(transferId);
+            throw new RejectedExecutionException("Too many pending transfers, please retry later", ex);
+        }
+        return pending;
+    }
+
+    /**
+     * Retrieves the status of a submitted transfer.
+     * @param transferId the id returned on submission.
+     * @return the status, if the transfer is known and its status has not expired.
+     */
+    public Optional<TransferStatus> getStatus(String transferId) {
+        return Optional.ofNullable(statuses.get(transferId));
+    }
+
+    private void run(TransferStatus pending) {
+        TransferStatus done;
+        try {
+            service.transfer(pending.fromAccountId(), pending.toAccountId(), pending.amount());
+            done = pending.complete(TransferStatus.State.COMPLETED, "Transfer successful");
+        } catch (RuntimeException ex) {
+            done = pending.complete(TransferStatus.State.FAILED, ex.getMessage());
+        }
+        statuses.put(pending.transferId(), done);
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    void purgeExpired() {
+        LocalDateTime limit = LocalDateTime.now().minusMinutes(statusTtlMinutes);
+        statuses.values().removeIf(status -> status.completedAt() != null && status.completedAt().isBefore(limit));
+    }
+}
@@ -0,0 +1,106 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import sn.gestionbanque.gestioncompte.dto.BalanceSnapshot;
+import sn.gestionbanque.gestioncompte.model.CompteBancaire;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Write-through cache of account balances, keyed by account id.
+ * Writers update it once their transaction has committed. Each entry carries the account version
+ * and an update never replaces a newer entry, so two transfers committing in quick succession
+ * cannot leave the older balance in the cache. Paths that change balances without loading the
+ * account (set-based updates) evict instead.
+ */
+@Component
+public class BalanceCache {
+
+    private final boolean enabled;
+    private final Cache<Long, BalanceSnapshot> cache;
+
+    public BalanceCache(@Value("${banque.cache.balance.enabled:true}") boolean enabled,
+                        @Value("${banque.cache.balance.max-size:1000000}") long maxSize,
+                        @Value("${banque.cache.balance.ttl-seconds:300}") long ttlSeconds,
+                        MeterRegistry registry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "balances");
+    }
+
+    /**
+     * Returns the cached balance of an account, loading it on a miss.
+     * @param accountId the ID of the account.
+     * @param loader reads the balance from the database; returns {@code null} if the account does not exist.
+     * @return the balance, or {@code null} if the account does not exist.
+     */
+    public BalanceSnapshot get(Long accountId, Function<Long, BalanceSnapshot> loader) {
+        if (!enabled) {
+            return loader.apply(accountId);
+        }
+        return cache.get(accountId, loader);
+    }
+
+    /**
+     * Stores the balance of an account once the current transaction commits (immediately if none is active).
+     * @param account the account, whose version is read after the commit.
+     */
+    public void put(CompteBancaire account) {
+        if (enabled) {
+            afterCommit(() -> cache.asMap().merge(account.getId(),
+                    new BalanceSnapshot(account.getBalance(), account.getVersion()),
+                    (cached, updated) -> updated.version() >= cached.version() ? updated : cached));
+        }
+    }
+
+    /**
+     * Stores the balances of several accounts once the current transaction commits.
+     */
+    public void putAll(Collection<CompteBancaire> accounts) {
+        accounts.forEach(this::put);
+    }
+
+    /**
+     * Evicts accounts once the current transaction commits (immediately if none is active).
+     */
+    public void evict(Long... accountIds) {
+        evictAll(List.of(accountIds));
+    }
+
+    /**
+     * Evicts accounts once the current transaction commits (immediately if none is active).
+     */
+    public void evictAll(Collection<Long> accountIds) {
+        if (enabled) {
+            afterCommit(() -> cache.invalidateAll(accountIds));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,236 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import sn.gestionbanque.gestioncompte.dto.BalanceSnapshot;
+import sn.gestionbanque.gestioncompte.engine.InMemoryLedgerEngine;
+import sn.gestionbanque.gestioncompte.exception.CompteInexistantException;
+import sn.gestionbanque.gestioncompte.model.BalanceCheckpoint;
+import sn.gestionbanque.gestioncompte.repository.BalanceCheckpointRepository;
+import sn.gestionbanque.gestioncompte.repository.CompteBancaireRepository;
+import sn.gestionbanque.gestioncompte.repository.TransactionRepository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Historical balances from periodic checkpoints.
+ * A daily job records the balance of every account that moved since the previous run (and of
+ * accounts that have none yet). A balance at time T then starts from the nearest checkpoint and
+ * only sums the transactions between the two, at most about a day of them for an active account.
+ * History older than the first daily run is covered by month-start checkpoints derived from the
+ * ledger, so older balances sum at most about a month of transactions.
+ */
+@Service
+public class BalanceCheckpointService {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceCheckpointService.class);
+
+    // Upper bound of a DATETIME column
+    private static final LocalDateTime END_OF_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    // Balance at the checkpoint time = current balance minus what was booked after it
+    private static final String CHUNK_SQL = "select a.id, a.balance - coalesce((select sum(t.amount) from transactions t "
+            + "where t.account_id = a.id and t.transaction_date > ?), 0) "
+            + "from bank_accounts a where a.id > ? and a.created_at <= ? "
+            + "and (not exists (select 1 from balance_checkpoints c where c.account_id = a.id) "
+            + "or exists (select 1 from transactions t where t.account_id = a.id "
+            + "and t.transaction_date > ? and t.transaction_date <= ?)) "
+            + "order by a.id limit ?";
+
+    // Creation time, or first transaction if older (accounts created before created_at was recorded)
+    private static final String OPENED_AT_SQL = "select least(a.created_at, coalesce((select min(t.transaction_date) "
+            + "from transactions t where t.account_id = a.id), a.created_at)) from bank_accounts a where a.id = ?";
+
+    private static final String INSERT_SQL = "insert into balance_checkpoints (account_id, checkpoint_at, balance) values (?, ?, ?)";
+
+    @Autowired
+    private BalanceCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private CompteBancaireRepository repository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionPartitionManager partitionManager;
+
+    @Autowired(required = false)
+    private InMemoryLedgerEngine ledgerEngine;
+
+    @Value("${banque.balance.checkpoint.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${banque.balance.checkpoint.settle-seconds:60}")
+    private long settleSeconds;
+
+    private final TransactionTemplate snapshotTransaction;
+    /** Date of the first transaction, once known: rows are only ever added after it. */
+    private volatile LocalDateTime firstTransactionAt;
+
+    public BalanceCheckpointService(PlatformTransactionManager transactionManager) {
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        // Every chunk reads the same consistent snapshot, with plain (non-locking) reads
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Computes the balance of an account at a point in time.
+     * @param accountId the ID of the account.
+     * @param asOf the point in time.
+     * @return the balance at that time, including the transactions dated at or before it; zero
+     *         before the account was created.
+     * @throws CompteInexistantException if no account is found with the given ID.
+     * @throws IllegalArgumentException if the transactions of that time are past the retention.
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getBalanceAt(Long accountId, LocalDateTime asOf) {
+        if (asOf.isBefore(partitionManager.retentionHorizon())) {
+            throw new IllegalArgumentException("Balances before " + partitionManager.retentionHorizon()
+                    + " are past the transaction retention");
+        }
+        List<Timestamp> openedAt = jdbcTemplate.query(OPENED_AT_SQL, (rs, i) -> rs.getTimestamp(1), accountId);
+        if (openedAt.isEmpty()) {
+            throw new CompteInexistantException("Account not found with id: " + accountId);
+        }
+        if (asOf.isBefore(openedAt.get(0).toLocalDateTime())) {
+            return BigDecimal.ZERO;
+        }
+        Optional<BalanceCheckpoint> before = checkpointRepository
+                .findFirstByAccountIdAndCheckpointAtLessThanEqualOrderByCheckpointAtDesc(accountId, asOf);
+        if (before.isPresent()) {
+            BalanceCheckpoint checkpoint = before.get();
+            return checkpoint.getBalance()
+                    .add(transactionRepository.sumAmountBetween(accountId, checkpoint.getCheckpointAt(), asOf));
+        }
+        Optional<BalanceCheckpoint> after = checkpointRepository
+                .findFirstByAccountIdAndCheckpointAtGreaterThanOrderByCheckpointAtAsc(accountId, asOf);
+        if (after.isPresent()) {
+            BalanceCheckpoint checkpoint = after.get();
+            return checkpoint.getBalance()
+                    .subtract(transactionRepository.sumAmountBetween(accountId, asOf, checkpoint.getCheckpointAt()));
+        }
+        // No checkpoint yet: walk back from the current balance
+        BalanceSnapshot current = repository.findBalanceById(accountId)
+                .orElseThrow(() -> new CompteInexistantException("Account not found with id: " + accountId));
+        return current.balance().subtract(transactionRepository.sumAmountBetween(accountId, asOf, END_OF_TIME));
+    }
+
+    @Scheduled(cron = "${banque.balance.checkpoint.cron:0 5 0 * * *}")
+    void checkpointDaily() {
+        backfillMonthStarts();
+        takeCheckpoints(LocalDate.now().atStartOfDay());
+    }
+
+    /**
+     * Records month-start checkpoints for the history older than the earliest checkpoint, from
+     * the first month of the ledger (or of the retention) onwards. Each month only checkpoints the
+     * accounts that moved during the previous month, like a daily run. Once the history is
+     * covered, this does nothing.
+     * Finding the first month scans every row of {@code transactions} ({@code transaction_date}
+     * leads no index), so it is skipped when the earliest checkpoint already covers the first
+     * month of the retention, and otherwise runs once per process.
+     * @return the number of checkpoints recorded.
+     */
+    public int backfillMonthStarts() {
+        LocalDateTime horizon = partitionManager.retentionHorizon();
+        Optional<LocalDateTime> earliest = checkpointRepository.findEarliestCheckpointAt();
+        if (earliest.filter(at -> !at.isAfter(firstMonthAfter(horizon))).isPresent()) {
+            return 0;
+        }
+        if (firstTransactionAt == null) {
+            firstTransactionAt = jdbcTemplate.queryForObject(
+                    "select min(transaction_date) from transactions", LocalDateTime.class);
+            if (firstTransactionAt == null) {
+                return 0;
+            }
+        }
+        LocalDateTime end = earliest.orElse(LocalDate.now().atStartOfDay());
+        LocalDateTime month = firstMonthAfter(firstTransactionAt.isAfter(horizon) ? firstTransactionAt : horizon);
+        int total = 0;
+        for (; month.isBefore(end); month = month.plusMonths(1)) {
+            if (!checkpointRepository.existsByCheckpointAt(month)) {
+                total += record(month, month.minusMonths(1));
+            }
+        }
+        return total;
+    }
+
+    private static LocalDateTime firstMonthAfter(LocalDateTime time) {
+        return YearMonth.from(time).plusMonths(1).atDay(1).atStartOfDay();
+    }
+
+    /**
+     * Records the balance at the given time of every account that moved since the previous
+     * checkpoint run, or that has no checkpoint yet. Does nothing if checkpoints already exist at that time,
+     * or if transactions dated at or before it may still be committed: a transaction dates its rows
+     * before it commits, by up to {@code banque.balance.checkpoint.settle-seconds}, and the in-memory
+     * engine projects its rows with their journal time.
+     * @param at the checkpoint time.
+     * @return the number of checkpoints recorded.
+     */
+    public int takeCheckpoints(LocalDateTime at) {
+        if (!isSettled(at)) {
+            log.warn("Transactions dated up to {} may still be committing, balance checkpoints postponed", at);
+            return 0;
+        }
+        if (checkpointRepository.existsByCheckpointAt(at)) {
+            return 0;
+        }
+        LocalDateTime previous = checkpointRepository.findLatestCheckpointAt()
+                .filter(latest -> latest.isBefore(at))
+                .orElse(at.minusDays(1));
+        return record(at, previous);
+    }
+
+    /**
+     * Records the balance at {@code at} of the accounts that existed then and moved after
+     * {@code previous}, or that have no checkpoint yet.
+     */
+    private int record(LocalDateTime at, LocalDateTime previous) {
+        Timestamp atTs = Timestamp.valueOf(at);
+        Timestamp previousTs = Timestamp.valueOf(previous);
+        Integer total = snapshotTransaction.execute(status -> {
+            int count = 0;
+            long lastId = 0;
+            while (true) {
+                List<Object[]> rows = jdbcTemplate.query(CHUNK_SQL,
+                        (rs, i) -> new Object[] {rs.getLong(1), atTs, rs.getBigDecimal(2)},
+                        atTs, lastId, atTs, previousTs, atTs, chunkSize);
+                if (rows.isEmpty()) {
+                    return count;
+                }
+                jdbcTemplate.batchUpdate(INSERT_SQL, new ArrayList<>(rows));
+                count += rows.size();
+                lastId = (Long) rows.get(rows.size() - 1)[0];
+            }
+        });
+        log.info("Recorded {} balance checkpoints at {}", total, at);
+        return total == null ? 0 : total;
+    }
+
+    private boolean isSettled(LocalDateTime at) {
+        return LocalDateTime.now().isAfter(at.plusSeconds(settleSeconds))
+                && (ledgerEngine == null || ledgerEngine.isProjectedThrough(at));
+    }
+}
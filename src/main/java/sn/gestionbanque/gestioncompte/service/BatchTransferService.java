@@ -0,0 +1,238 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import sn.gestionbanque.gestioncompte.dto.TransferRequest;
+import sn.gestionbanque.gestioncompte.dto.TransferResult;
+import sn.gestionbanque.gestioncompte.engine.InMemoryLedgerEngine;
+import sn.gestionbanque.gestioncompte.model.CompteBancaire;
+import sn.gestionbanque.gestioncompte.model.Transaction;
+import sn.gestionbanque.gestioncompte.repository.CompteBancaireRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Applies a list of transfers in one database transaction.
+ * Every touched account is locked up front in ascending id order, the transfers are then applied
+ * in request order against the locked balances, and a failing transfer only rejects itself.
+ */
+@Service
+public class BatchTransferService {
+
+    private static final int LOCK_CHUNK_SIZE = 1000;
+
+    @Autowired
+    private CompteBancaireRepository repository;
+
+    @Autowired
+    private LedgerWriter ledgerWriter;
+
+    @Autowired
+    private BalanceCache balanceCache;
+
+    @Autowired(required = false)
+    private InMemoryLedgerEngine ledgerEngine;
+
+    @Value("${banque.transfer.batch.max-size:10000}")
+    private int maxBatchSize;
+
+    /**
+     * Applies the given transfers.
+     * @param transfers the transfers, in the order they must be applied.
+     * @return one result per transfer, at the same index.
+     * @throws IllegalArgumentException if the batch exceeds {@code banque.transfer.batch.max-size}, or if
+     *         the in-memory ledger engine is active.
+     */
+    @Transactional
+    public List<TransferResult> apply(List<TransferRequest> transfers) {
+        checkLedgerInDatabase();
+        if (transfers.size() > maxBatchSize) {
+            throw new IllegalArgumentException("A batch cannot contain more than " + maxBatchSize + " transfers");
+        }
+
+        Map<Long, CompteBancaire> accounts = lockAccounts(transfers);
+        List<TransferResult> results = new ArrayList<>(transfers.size());
+        List<Transaction> ledger = new ArrayList<>(transfers.size() * 2);
+
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequest transfer = transfers.get(i);
+            TransferResult rejection = precheck(i, transfer, accounts);
+            if (rejection != null) {
+                results.add(rejection);
+                continue;
+            }
+            CompteBancaire fromAccount = accounts.get(transfer.fromAccountId());
+            CompteBancaire toAccount = accounts.get(transfer.toAccountId());
+            if (fromAccount.getBalance().compareTo(transfer.amount()) < 0) {
+                results.add(new TransferResult(i, TransferResult.Status.INSUFFICIENT_FUNDS,
+                        "Insufficient funds in account with id: " + fromAccount.getId()));
+                continue;
+            }
+
+            fromAccount.setBalance(fromAccount.getBalance().subtract(transfer.amount()));
+            toAccount.setBalance(toAccount.getBalance().add(transfer.amount()));
+            ledger.add(ledgerWriter.entry(fromAccount, transfer.amount().negate()));
+            ledger.add(ledgerWriter.entry(toAccount, transfer.amount()));
+            results.add(TransferResult.completed(i));
+        }
+
+        // Balance updates are flushed at commit, one UPDATE per touched account
+        ledgerWriter.recordAll(ledger);
+        balanceCache.putAll(accounts.values());
+        return results;
+    }
+
+    /**
+     * Applies the given transfers with multilateral netting: the net position of every touched
+     * account is computed over the whole batch and written with a single balance update, while
+     * each accepted transfer still gets its two ledger rows.
+     * When an account cannot cover its net debit, its outgoing transfers are rejected, latest
+     * first, until it can; this is repeated until every remaining position is covered.
+     * @param transfers the transfers to settle together.
+     * @return one result per transfer, at the same index.
+     * @throws IllegalArgumentException if the batch exceeds {@code banque.transfer.batch.max-size}, or if
+     *         the in-memory ledger engine is active.
+     */
+    @Transactional
+    public List<TransferResult> applyNetted(List<TransferRequest> transfers) {
+        checkLedgerInDatabase();
+        if (transfers.size() > maxBatchSize) {
+            throw new IllegalArgumentException("A batch cannot contain more than " + maxBatchSize + " transfers");
+        }
+
+        Map<Long, CompteBancaire> accounts = lockAccounts(transfers);
+        TransferResult[] results = new TransferResult[transfers.size()];
+        for (int i = 0; i < transfers.size(); i++) {
+            results[i] = precheck(i, transfers.get(i), accounts);
+        }
+
+        Map<Long, BigDecimal> positions = netPositions(transfers, results);
+        boolean rejected = true;
+        while (rejected) {
+            rejected = false;
+            for (int i = transfers.size() - 1; i >= 0; i--) {
+                TransferRequest transfer = transfers.get(i);
+                if (results[i] != null || isCovered(accounts.get(transfer.fromAccountId()), positions)) {
+                    continue;
+                }
+                results[i] = new TransferResult(i, TransferResult.Status.INSUFFICIENT_FUNDS,
+                        "Insufficient funds in account with id: " + transfer.fromAccountId());
+                positions.merge(transfer.fromAccountId(), transfer.amount(), BigDecimal::add);
+                positions.merge(transfer.toAccountId(), transfer.amount().negate(), BigDecimal::add);
+                rejected = true;
+            }
+        }
+
+        // One UPDATE per touched account, flushed at commit
+        positions.forEach((id, net) -> {
+            if (net.signum() != 0) {
+                CompteBancaire account = accounts.get(id);
+                account.setBalance(account.getBalance().add(net));
+            }
+        });
+
+        List<Transaction> ledger = new ArrayList<>(transfers.size() * 2);
+        for (int i = 0; i < transfers.size(); i++) {
+            if (results[i] == null) {
+                TransferRequest transfer = transfers.get(i);
+                ledger.add(ledgerWriter.entry(accounts.get(transfer.fromAccountId()), transfer.amount().negate()));
+                ledger.add(ledgerWriter.entry(accounts.get(transfer.toAccountId()), transfer.amount()));
+                results[i] = TransferResult.completed(i);
+            }
+        }
+        ledgerWriter.recordAll(ledger);
+        balanceCache.putAll(accounts.values());
+        return Arrays.asList(results);
+    }
+
+    private static Map<Long, BigDecimal> netPositions(List<TransferRequest> transfers, TransferResult[] results) {
+        Map<Long, BigDecimal> positions = new HashMap<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            if (results[i] == null) {
+                TransferRequest transfer = transfers.get(i);
+                positions.merge(transfer.fromAccountId(), transfer.amount().negate(), BigDecimal::add);
+                positions.merge(transfer.toAccountId(), transfer.amount(), BigDecimal::add);
+            }
+        }
+        return positions;
+    }
+
+    private static boolean isCovered(CompteBancaire account, Map<Long, BigDecimal> positions) {
+        return account.getBalance().add(positions.get(account.getId())).signum() >= 0;
+    }
+
+    /**
+     * Rejects a transfer that is invalid or refers to an unknown account.
+     * @return the rejection, or {@code null} if the transfer can be attempted.
+     */
+    private static TransferResult precheck(int index, TransferRequest transfer, Map<Long, CompteBancaire> accounts) {
+        if (!isValid(transfer)) {
+            return new TransferResult(index, TransferResult.Status.INVALID,
+                    "Both account ids and a positive amount are required");
+        }
+        if (!accounts.containsKey(transfer.fromAccountId()) || !accounts.containsKey(transfer.toAccountId())) {
+            Long missing = accounts.containsKey(transfer.fromAccountId()) ? transfer.toAccountId() : transfer.fromAccountId();
+            return new TransferResult(index, TransferResult.Status.ACCOUNT_NOT_FOUND,
+                    "Account not found with id: " + missing);
+        }
+        return null;
+    }
+
+    /**
+     * The in-memory engine owns the balances while it is active: updating the rows behind its back
+     * would let it approve transfers against stale balances.
+     */
+    private void checkLedgerInDatabase() {
+        if (ledgerEngine != null) {
+            throw new IllegalArgumentException("Batch transfers are not available while the in-memory ledger engine is active");
+        }
+    }
+
+    private Map<Long, CompteBancaire> lockAccounts(List<TransferRequest> transfers) {
+        TreeSet<Long> ids = new TreeSet<>();
+        for (TransferRequest transfer : transfers) {
+            if (isValid(transfer)) {
+                ids.add(transfer.fromAccountId());
+                ids.add(transfer.toAccountId());
+            }
+        }
+
+        Map<Long, CompteBancaire> accounts = new HashMap<>(ids.size() * 2);
+        List<Long> chunk = new ArrayList<>(LOCK_CHUNK_SIZE);
+        for (Long id : ids) {
+            chunk.add(id);
+            if (chunk.size() == LOCK_CHUNK_SIZE) {
+                lockChunk(chunk, accounts);
+            }
+        }
+        lockChunk(chunk, accounts);
+        return accounts;
+    }
+
+    private void lockChunk(List<Long> chunk, Map<Long, CompteBancaire> accounts) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        for (CompteBancaire account : repository.findAllByIdForUpdate(chunk)) {
+            accounts.put(account.getId(), account);
+        }
+        chunk.clear();
+    }
+
+    static boolean isValid(TransferRequest transfer) {
+        return transfer != null
+                && transfer.fromAccountId() != null
+                && transfer.toAccountId() != null
+                && transfer.amount() != null
+                && transfer.amount().signum() > 0;
+    }
+}
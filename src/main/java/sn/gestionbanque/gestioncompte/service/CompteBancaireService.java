@@ -1,20 +1,39 @@
 package sn.gestionbanque.gestioncompte.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import sn.gestionbanque.gestioncompte.dto.BalanceSnapshot;
+import sn.gestionbanque.gestioncompte.dto.CompteResume;
+import sn.gestionbanque.gestioncompte.dto.CursorPage;
+import sn.gestionbanque.gestioncompte.dto.TransactionDto;
+import sn.gestionbanque.gestioncompte.engine.InMemoryLedgerEngine;
 import sn.gestionbanque.gestioncompte.exception.CompteInexistantException;
 import sn.gestionbanque.gestioncompte.exception.SoldeInsuffisantException;
 import sn.gestionbanque.gestioncompte.model.CompteBancaire;
-import sn.gestionbanque.gestioncompte.model.Transaction;
+import sn.gestionbanque.gestioncompte.readmodel.LedgerEvent;
 import sn.gestionbanque.gestioncompte.repository.CompteBancaireRepository;
 import sn.gestionbanque.gestioncompte.repository.TransactionRepository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class CompteBancaireService {
@@ -25,13 +44,79 @@ public class CompteBancaireService {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private TransferEngine transferEngine;
+
+    @Autowired
+    private GroupCommitTransferQueue groupCommit;
+
+    @Autowired(required = false)
+    private InMemoryLedgerEngine ledgerEngine;
+
+    @Autowired
+    private StripedLockManager lockManager;
+
+    @Autowired
+    private BalanceCache balanceCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionPartitionManager partitionManager;
+
+    @Value("${banque.transfer.mode:PESSIMISTIC}")
+    private TransferMode transferMode;
+
+    @Value("${banque.history.cache.settle-seconds:3600}")
+    private long historySettleSeconds;
+
+    @Value("${banque.pagination.max-size:1000}")
+    private int maxPageSize;
+
+    @Value("${banque.transfer.optimistic.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${banque.transfer.optimistic.initial-backoff-ms:2}")
+    private long initialBackoffMs;
+
+    @Value("${banque.transfer.optimistic.max-backoff-ms:100}")
+    private long maxBackoffMs;
+
+    private final Timer transferTimer;
+    private final Counter lockFailures;
+    private final Counter optimisticConflicts;
+    private final Counter optimisticRetries;
+    private final Counter optimisticGiveUps;
+
+    public CompteBancaireService(MeterRegistry registry) {
+        this.transferTimer = Timer.builder("banque.transfer.duration")
+                .description("End-to-end duration of a transfer, including lock waits")
+                .register(registry);
+        this.lockFailures = Counter.builder("banque.transfer.lock.failures")
+                .description("Transfers aborted by a lock timeout (stripe or row) or a deadlock")
+                .register(registry);
+        this.optimisticConflicts = Counter.builder("banque.transfer.optimistic.conflicts")
+                .description("Optimistic transfer attempts rejected by a concurrent update")
+                .register(registry);
+        this.optimisticRetries = Counter.builder("banque.transfer.optimistic.retries")
+                .description("Optimistic transfer attempts retried after a conflict")
+                .register(registry);
+        this.optimisticGiveUps = Counter.builder("banque.transfer.optimistic.give-ups")
+                .description("Optimistic transfers abandoned after the last retry")
+                .register(registry);
+    }
+
     /**
      * Creates a new bank account.
      * @param account the account to be created.
      * @return the created account.
      */
     public CompteBancaire createAccount(CompteBancaire account) {
-        return repository.save(account);
+        CompteBancaire created = repository.save(account);
+        balanceCache.put(created);
+        eventPublisher.publishEvent(new LedgerEvent.AccountOpened(created.getId(), created.getBalance()));
+        return created;
     }
 
     /**
@@ -40,31 +125,116 @@ public class CompteBancaireService {
      * @return the account.
      * @throws CompteInexistantException if no account is found with the given ID.
      */
+    @Transactional(readOnly = true)
     public CompteBancaire getAccount(Long id) {
         return repository.findById(id)
                 .orElseThrow(() -> new CompteInexistantException("Account not found with id: " + id));
     }
 
+    /**
+     * Retrieves the version of an account from the balance cache, without loading the account.
+     * The version changes with every update of the account.
+     * @param id the ID of the account.
+     * @return the version of the account.
+     * @throws CompteInexistantException if no account is found with the given ID.
+     */
+    public long getAccountVersion(Long id) {
+        BalanceSnapshot cached = balanceCache.get(id, key -> repository.findBalanceById(key).orElse(null));
+        if (cached == null) {
+            throw new CompteInexistantException("Account not found with id: " + id);
+        }
+        return cached.version();
+    }
+
+    /**
+     * Retrieves the summary of an account (number, holder and balance).
+     * @param id the ID of the account.
+     * @return the summary.
+     * @throws CompteInexistantException if no account is found with the given ID.
+     */
+    @Transactional(readOnly = true)
+    public CompteResume getAccountSummary(Long id) {
+        return repository.findSummaryById(id)
+                .orElseThrow(() -> new CompteInexistantException("Account not found with id: " + id));
+    }
+
     /**
      * Lists all bank accounts with pagination.
      * @param page the page number (0-based).
      * @param size the size of the page.
      * @return a page of bank accounts.
+     * @throws IllegalArgumentException if the size is out of range.
      */
+    @Transactional(readOnly = true)
     public Page<CompteBancaire> listAccounts(int page, int size) {
+        checkPageSize(size);
         Pageable pageable = PageRequest.of(page, size);
         return repository.findAll(pageable);
     }
 
     /**
-     * Deletes an account by its ID.
+     * Lists bank accounts without computing the total count.
+     * @param page the page number (0-based).
+     * @param size the size of the page.
+     * @return a slice of bank accounts, which only tells whether a next slice exists.
+     * @throws IllegalArgumentException if the size is out of range.
+     */
+    @Transactional(readOnly = true)
+    public Slice<CompteBancaire> listAccountsSlice(int page, int size) {
+        checkPageSize(size);
+        return repository.findAllBy(PageRequest.of(page, size, Sort.by("id")));
+    }
+
+    /**
+     * Lists bank accounts with keyset pagination. The cost of a page does not depend on its depth
+     * nor on the size of the table.
+     * @param cursor the cursor returned with the previous page, or {@code null} for the first page.
+     * @param size the size of the page.
+     * @param sort {@code id} or {@code accountNumber}; must be the same for every page of a listing.
+     * @return the page and the cursor of the next one.
+     * @throws IllegalArgumentException if the sort is unknown, the cursor is malformed or the size out of range.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<CompteBancaire> scrollAccounts(String cursor, int size, String sort) {
+        checkPageSize(size);
+        // One extra row tells whether a next page exists
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<CompteBancaire> rows;
+        switch (sort) {
+            case "id" -> {
+                Long after = cursor == null ? 0L : parseId(CursorCodec.decode(cursor, 1)[0]);
+                rows = repository.findByIdGreaterThanOrderByIdAsc(after, limit);
+            }
+            case "accountNumber" -> {
+                String after = cursor == null ? "" : CursorCodec.decode(cursor, 1)[0];
+                rows = repository.findByAccountNumberGreaterThanOrderByAccountNumberAsc(after, limit);
+            }
+            default -> throw new IllegalArgumentException("Unknown sort: " + sort);
+        }
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<CompteBancaire> page = rows.subList(0, size);
+        CompteBancaire last = page.get(size - 1);
+        return new CursorPage<>(page, CursorCodec.encode("id".equals(sort) ? last.getId() : last.getAccountNumber()));
+    }
+
+    /**
+     * Deletes an account by its ID, together with its transactions.
      * @param id the ID of the account to be deleted.
      */
+    @Transactional
     public void deleteAccount(Long id) {
+        if (ledgerEngine != null) {
+            throw new IllegalArgumentException("Accounts cannot be deleted while the in-memory ledger engine is active");
+        }
         if (!repository.existsById(id)) {
             throw new CompteInexistantException("Account not found with id: " + id);
         }
+        transactionRepository.deleteByAccountId(id);
         repository.deleteById(id);
+        balanceCache.evict(id);
+        eventPublisher.publishEvent(new LedgerEvent.AccountClosed(id));
     }
 
     /**
@@ -74,8 +244,17 @@ public class CompteBancaireService {
      * @throws CompteInexistantException if no account is found with the given ID.
      */
     public BigDecimal getAccountBalance(Long accountId) {
-        CompteBancaire account = getAccount(accountId);
-        return account.getBalance();
+        if (ledgerEngine != null) {
+            BigDecimal balance = ledgerEngine.balance(accountId);
+            if (balance != null) {
+                return balance;
+            }
+        }
+        BalanceSnapshot cached = balanceCache.get(accountId, id -> repository.findBalanceById(id).orElse(null));
+        if (cached == null) {
+            throw new CompteInexistantException("Account not found with id: " + accountId);
+        }
+        return cached.balance();
     }
 
     /**
@@ -85,61 +264,171 @@ public class CompteBancaireService {
      * @param size the size of the page.
      * @return a page of transactions.
      * @throws CompteInexistantException if no account is found with the given ID.
+     * @throws IllegalArgumentException if the size is out of range.
      */
-    public Page<Transaction> getAccountTransactions(Long accountId, int page, int size) {
-        getAccount(accountId); // Ensure the account exists
+    @Transactional(readOnly = true)
+    public Page<TransactionDto> getAccountTransactions(Long accountId, int page, int size) {
+        checkPageSize(size);
+        if (!repository.existsById(accountId)) {
+            throw new CompteInexistantException("Account not found with id: " + accountId);
+        }
         Pageable pageable = PageRequest.of(page, size);
-        return transactionRepository.findByAccountId(accountId, pageable);
+        return transactionRepository.findByAccountId(accountId, partitionManager.retentionHorizon(), pageable);
+    }
+
+    /**
+     * Retrieves the transaction history of an account with keyset pagination, newest first.
+     * Each page seeks from the previous one's last {@code (transaction_date, id)}, so fetching a
+     * deep page costs the same as the first one, and no total count is computed.
+     * @param accountId the ID of the account.
+     * @param cursor the cursor returned with the previous page, or {@code null} for the first page.
+     * @param size the size of the page.
+     * @return the page and the cursor of the next one.
+     * @throws CompteInexistantException if no account is found with the given ID.
+     * @throws IllegalArgumentException if the cursor is malformed or the size out of range.
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TransactionDto> getAccountTransactions(Long accountId, String cursor, int size) {
+        checkPageSize(size);
+        if (!repository.existsById(accountId)) {
+            throw new CompteInexistantException("Account not found with id: " + accountId);
+        }
+        // One extra row tells whether a next page exists
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<TransactionDto> rows;
+        if (cursor == null) {
+            rows = transactionRepository.findLatestByAccountId(accountId, partitionManager.retentionHorizon(), limit);
+        } else {
+            String[] keys = CursorCodec.decode(cursor, 2);
+            rows = transactionRepository.findByAccountIdBefore(accountId, partitionManager.retentionHorizon(),
+                    parseDate(keys[0]), parseId(keys[1]), limit);
+        }
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, null);
+        }
+        List<TransactionDto> page = rows.subList(0, size);
+        TransactionDto last = page.get(size - 1);
+        return new CursorPage<>(page, CursorCodec.encode(last.transactionDate(), last.id()));
+    }
+
+    /**
+     * Tells whether no row can appear any more in the keyset page that follows a cursor.
+     * Ledger rows are dated before they commit, so the cursor position must be older than the
+     * settle window (which covers in-flight transactions) and, with the in-memory engine, every
+     * transfer journaled up to it must be projected. The position must also be within the retention.
+     * Rows can still leave a settled page, when its account is deleted or its partition removed,
+     * so callers may cache it for a bounded time only.
+     * @param cursor the cursor of the page, or {@code null} for the head page.
+     * @return {@code true} if the page is settled.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public boolean isSettledPage(String cursor) {
+        if (cursor == null) {
+            return false;
+        }
+        LocalDateTime position = parseDate(CursorCodec.decode(cursor, 2)[0]);
+        return position.isBefore(LocalDateTime.now().minusSeconds(historySettleSeconds))
+                && !position.isBefore(partitionManager.retentionHorizon())
+                && (ledgerEngine == null || ledgerEngine.isProjectedThrough(position));
+    }
+
+    private void checkPageSize(int size) {
+        if (size < 1 || size > maxPageSize) {
+            throw new IllegalArgumentException("The page size must be between 1 and " + maxPageSize);
+        }
+    }
+
+    private static LocalDateTime parseDate(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid cursor", ex);
+        }
+    }
+
+    private static Long parseId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid cursor", ex);
+        }
     }
 
     /**
-     * Performs a transfer between two accounts.
+     * Performs a transfer between two accounts using the configured {@link TransferMode}, or through
+     * the group-commit stage when {@code banque.transfer.group-commit.enabled} is set.
      * @param fromAccountId the ID of the account from which the amount will be transferred.
      * @param toAccountId the ID of the account to which the amount will be transferred.
      * @param amount the amount to be transferred.
+     * @throws IllegalArgumentException if the amount is not positive.
      * @throws CompteInexistantException if any of the accounts is not found.
      * @throws SoldeInsuffisantException if the source account has insufficient funds.
+     * @throws ConcurrencyFailureException if the account stripes or row locks could not be acquired, or if an
+     *         optimistic transfer still conflicted after the last retry.
      */
     public void transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
-        CompteBancaire fromAccount = repository.findById(fromAccountId)
-                .orElseThrow(() -> new CompteInexistantException("Account not found with id: " + fromAccountId));
-        CompteBancaire toAccount = repository.findById(toAccountId)
-                .orElseThrow(() -> new CompteInexistantException("Account not found with id: " + toAccountId));
-
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
-            throw new SoldeInsuffisantException("Insufficient funds in account with id: " + fromAccountId);
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("The amount must be positive");
+        }
+        Timer.Sample sample = Timer.start();
+        try {
+            if (transferMode == TransferMode.IN_MEMORY) {
+                ledgerEngine.transfer(fromAccountId, toAccountId, amount);
+                return;
+            }
+            if (groupCommit.isEnabled()) {
+                groupCommit.transfer(fromAccountId, toAccountId, amount);
+                return;
+            }
+            if (transferMode == TransferMode.OPTIMISTIC) {
+                transferOptimistic(fromAccountId, toAccountId, amount);
+                return;
+            }
+            // Same-JVM transfers on the same accounts queue here, without holding a connection
+            try (StripedLockManager.Stripes ignored = lockManager.lock(fromAccountId, toAccountId)) {
+                if (transferMode == TransferMode.DIRECT) {
+                    transferEngine.transferDirect(fromAccountId, toAccountId, amount);
+                } else {
+                    transferEngine.transfer(fromAccountId, toAccountId, amount);
+                }
+            }
+        } catch (PessimisticLockingFailureException ex) {
+            lockFailures.increment();
+            throw ex;
+        } finally {
+            sample.stop(transferTimer);
         }
-
-        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
-        toAccount.setBalance(toAccount.getBalance().add(amount));
-
-        repository.save(fromAccount);
-        repository.save(toAccount);
-
-        // Record the transaction
-        Transaction transaction = new Transaction();
-        transaction.setAccount(fromAccount);
-        transaction.setAmount(amount.negate()); // Debit from source account
-        transaction.setTransactionDate(LocalDateTime.now());
-        transactionRepository.save(transaction);
-
-        Transaction receivedTransaction = new Transaction();
-        receivedTransaction.setAccount(toAccount);
-        receivedTransaction.setAmount(amount); // Credit to destination account
-        receivedTransaction.setTransactionDate(LocalDateTime.now());
-        transactionRepository.save(receivedTransaction);
     }
 
     /**
-     * Records a transaction in the transaction repository.
-     * @param account the account associated with the transaction.
-     * @param amount the amount of the transaction.
+     * Runs an optimistic transfer, retrying on version conflicts with jittered exponential backoff.
+     * Each attempt is a fresh transaction, so the accounts are re-read before being updated again.
+     * The stripes are held for one attempt only: they are released before backing off.
      */
-    private void recordTransaction(CompteBancaire account, BigDecimal amount) {
-        Transaction transaction = new Transaction();
-        transaction.setAccount(account);
-        transaction.setAmount(amount);
-        transaction.setTransactionDate(LocalDateTime.now());
-        transactionRepository.save(transaction);
+    private void transferOptimistic(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        for (int attempt = 0; ; attempt++) {
+            try (StripedLockManager.Stripes ignored = lockManager.lock(fromAccountId, toAccountId)) {
+                transferEngine.transferOptimistic(fromAccountId, toAccountId, amount);
+                return;
+            } catch (OptimisticLockingFailureException ex) {
+                optimisticConflicts.increment();
+                if (attempt >= maxRetries) {
+                    optimisticGiveUps.increment();
+                    throw ex;
+                }
+                optimisticRetries.increment();
+                backoff(attempt, ex);
+            }
+        }
+    }
+
+    private void backoff(int attempt, OptimisticLockingFailureException cause) {
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
     }
 }
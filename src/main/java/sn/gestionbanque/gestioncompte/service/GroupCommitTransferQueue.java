@@ -0,0 +1,216 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import sn.gestionbanque.gestioncompte.dto.TransferRequest;
+import sn.gestionbanque.gestioncompte.dto.TransferResult;
+import sn.gestionbanque.gestioncompte.exception.CompteInexistantException;
+import sn.gestionbanque.gestioncompte.exception.SoldeInsuffisantException;
+import sn.gestionbanque.gestioncompte.exception.TransfertIncertainException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Optional group-commit stage in front of the transfer engine.
+ * Transfers arriving within {@code banque.transfer.group-commit.window-ms} (or until
+ * {@code max-items} are collected) are applied together by {@link BatchTransferService} in a
+ * single database transaction, so they share one commit. Each caller still gets its own
+ * outcome: a transfer with insufficient funds fails alone.
+ */
+@Component
+public class GroupCommitTransferQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitTransferQueue.class);
+
+    @Autowired
+    private BatchTransferService batchTransferService;
+
+    @Value("${banque.transfer.group-commit.enabled:false}")
+    private boolean enabled;
+
+    @Value("${banque.transfer.group-commit.window-ms:2}")
+    private long windowMs;
+
+    @Value("${banque.transfer.group-commit.max-items:200}")
+    private int maxItems;
+
+    @Value("${banque.transfer.group-commit.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${banque.transfer.group-commit.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Value("${banque.transfer.mode:PESSIMISTIC}")
+    private TransferMode transferMode;
+
+    private final DistributionSummary groupSize;
+    private BlockingQueue<PendingTransfer> queue;
+    private Thread worker;
+    private volatile boolean running;
+
+    public GroupCommitTransferQueue(MeterRegistry registry) {
+        this.groupSize = DistributionSummary.builder("banque.transfer.group-commit.size")
+                .description("Number of transfers committed together")
+                .register(registry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        if (transferMode == TransferMode.IN_MEMORY) {
+            // The engine already groups its journal writes, and it owns the balances this stage would update
+            throw new IllegalStateException("banque.transfer.group-commit.enabled cannot be combined with banque.transfer.mode=IN_MEMORY");
+        }
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        worker = new Thread(this::run, "group-commit");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Submits a transfer to the next group and waits for that group to commit.
+     * @param fromAccountId the ID of the account from which the amount will be transferred.
+     * @param toAccountId the ID of the account to which the amount will be transferred.
+     * @param amount the amount to be transferred.
+     * @throws CompteInexistantException if any of the accounts is not found.
+     * @throws SoldeInsuffisantException if the source account has insufficient funds.
+     * @throws RejectedExecutionException if the stage is stopped, still full after
+     *         {@code banque.transfer.group-commit.timeout-ms}, or the transfer was not taken into a
+     *         group within that timeout; the transfer was not applied.
+     * @throws TransfertIncertainException if the group did not commit within that timeout, or the
+     *         wait was interrupted; the transfer may still be applied.
+     */
+    public void transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        if (!running) {
+            throw new RejectedExecutionException("The group commit stage is stopped");
+        }
+        PendingTransfer pending = new PendingTransfer(new TransferRequest(fromAccountId, toAccountId, amount));
+        TransferResult result;
+        boolean queued = false;
+        try {
+            if (!queue.offer(pending, timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("The group commit queue is full, please retry");
+            }
+            queued = true;
+            // Stopped meanwhile: the worker may already have drained the queue for the last time
+            if (!running && queue.remove(pending)) {
+                throw new RejectedExecutionException("The group commit stage is stopped");
+            }
+            result = pending.future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            if (!queued || queue.remove(pending)) {
+                throw new RejectedExecutionException("Interrupted before the transfer was grouped", ex);
+            }
+            throw new TransfertIncertainException(
+                    "Interrupted while waiting for the group commit; the transfer may have been applied", ex);
+        } catch (TimeoutException ex) {
+            if (queue.remove(pending)) {
+                throw new RejectedExecutionException("The transfer was not grouped in time, please retry", ex);
+            }
+            throw new TransfertIncertainException(
+                    "Timed out waiting for the group commit; the transfer may have been applied", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+
+        switch (result.status()) {
+            case ACCOUNT_NOT_FOUND -> throw new CompteInexistantException(result.message());
+            case INSUFFICIENT_FUNDS -> throw new SoldeInsuffisantException(result.message());
+            case INVALID -> throw new IllegalArgumentException(result.message());
+            default -> { }
+        }
+    }
+
+    private void run() {
+        List<PendingTransfer> group = new ArrayList<>(maxItems);
+        try {
+            while (running) {
+                group.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMs);
+                while (group.size() < maxItems) {
+                    PendingTransfer next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                commit(group);
+                group.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Transfers not committed: fail them instead of leaving their callers waiting
+            queue.drainTo(group);
+            fail(group, new RejectedExecutionException("The group commit stage stopped"));
+        }
+    }
+
+    private void commit(List<PendingTransfer> group) {
+        List<TransferRequest> requests = new ArrayList<>(group.size());
+        for (PendingTransfer pending : group) {
+            requests.add(pending.request);
+        }
+        try {
+            List<TransferResult> results = batchTransferService.apply(requests);
+            for (int i = 0; i < group.size(); i++) {
+                group.get(i).future.complete(results.get(i));
+            }
+            groupSize.record(group.size());
+        } catch (RuntimeException ex) {
+            log.warn("Group commit of {} transfers failed", group.size(), ex);
+            fail(group, ex);
+        }
+    }
+
+    private static void fail(List<PendingTransfer> group, RuntimeException ex) {
+        for (PendingTransfer pending : group) {
+            pending.future.completeExceptionally(ex);
+        }
+    }
+
+    private static final class PendingTransfer {
+        private final TransferRequest request;
+        private final CompletableFuture<TransferResult> future = new CompletableFuture<>();
+
+        private PendingTransfer(TransferRequest request) {
+            this.request = request;
+        }
+    }
+}
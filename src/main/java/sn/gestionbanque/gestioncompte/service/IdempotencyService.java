@@ -0,0 +1,202 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import sn.gestionbanque.gestioncompte.exception.CleIdempotenceException;
+import sn.gestionbanque.gestioncompte.exception.CompteInexistantException;
+import sn.gestionbanque.gestioncompte.exception.SoldeInsuffisantException;
+import sn.gestionbanque.gestioncompte.model.CleIdempotence;
+import sn.gestionbanque.gestioncompte.repository.CleIdempotenceRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Executes a request at most once per {@code Idempotency-Key}.
+ * Recent keys live in a bounded in-memory store with a TTL, so a retry is answered with a hash
+ * lookup; the {@code idempotency_keys} table is the source of truth across restarts and instances.
+ * A new key costs one insert, which fails if the key was already claimed.
+ * A key whose response was never stored (the instance stopped between the transfer and the
+ * update, or the request failed in a way that does not prove nothing was applied) is kept past
+ * the retention period: its outcome is unknown, so it is never re-executed.
+ */
+@Service
+public class IdempotencyService {
+
+    /** Length of the {@code idempotency_key} column. */
+    static final int MAX_KEY_LENGTH = 100;
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    @Autowired
+    private CleIdempotenceRepository repository;
+
+    @Value("${banque.idempotency.retention-hours:24}")
+    private long retentionHours;
+
+    @Value("${banque.idempotency.wait-ms:30000}")
+    private long waitMs;
+
+    private final Cache<String, Entry> recent;
+
+    public IdempotencyService(@Value("${banque.idempotency.cache.max-size:100000}") long maxSize,
+                              @Value("${banque.idempotency.cache.ttl-minutes:15}") long ttlMinutes) {
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    /**
+     * Executes the action once for the given key, or returns the response of the first execution.
+     * If the action fails before applying anything (unknown account, insufficient funds, invalid
+     * request, saturation, lock timeout), the key is released so that the client can retry. On any
+     * other failure the outcome is unknown: the key stays claimed and retries are answered with 409.
+     * @param key the value of the {@code Idempotency-Key} header.
+     * @param fingerprint identifies the request parameters; a key reused with other parameters is rejected.
+     * @param action the request to execute.
+     * @return the response of the first execution.
+     * @throws CleIdempotenceException if the key is blank or longer than 100 characters (400), if it was
+     *         used with other parameters (422), or if the first execution is still running (409).
+     */
+    public ResponseEntity<String> execute(String key, String fingerprint, Supplier<ResponseEntity<String>> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new CleIdempotenceException("Idempotency-Key must contain 1 to " + MAX_KEY_LENGTH + " characters",
+                    HttpStatus.BAD_REQUEST);
+        }
+        Entry entry = new Entry(fingerprint);
+        Entry existing = recent.asMap().putIfAbsent(key, entry);
+        if (existing != null) {
+            return replay(existing, fingerprint);
+        }
+
+        try {
+            repository.claim(key, fingerprint, LocalDateTime.now());
+        } catch (DataIntegrityViolationException ex) {
+            // Claimed earlier or by another instance: answer from the table
+            recent.invalidate(key);
+            try {
+                ResponseEntity<String> stored = fromStore(key, fingerprint);
+                entry.response.complete(stored);
+                return stored;
+            } catch (RuntimeException storeEx) {
+                entry.response.completeExceptionally(storeEx);
+                throw storeEx;
+            }
+        } catch (RuntimeException ex) {
+            recent.invalidate(key);
+            entry.response.completeExceptionally(ex);
+            throw ex;
+        }
+
+        ResponseEntity<String> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException ex) {
+            if (!provesNothingApplied(ex)) {
+                log.warn("Outcome unknown for Idempotency-Key {}, keeping it claimed", key, ex);
+                entry.response.completeExceptionally(new CleIdempotenceException(
+                        "The outcome of the original request is unknown", HttpStatus.CONFLICT));
+                throw ex;
+            }
+            try {
+                repository.deleteById(key);
+            } finally {
+                recent.invalidate(key);
+                entry.response.completeExceptionally(ex);
+            }
+            throw ex;
+        }
+        try {
+            repository.complete(key, response.getStatusCode().value(), response.getBody());
+        } catch (RuntimeException ex) {
+            // The transfer is done: still answer it; other instances will report the key as in progress
+            log.warn("Could not store the response for Idempotency-Key {}", key, ex);
+        } finally {
+            entry.response.complete(response);
+        }
+        return response;
+    }
+
+    private ResponseEntity<String> replay(Entry entry, String fingerprint) {
+        checkFingerprint(entry.fingerprint, fingerprint);
+        try {
+            // Waits if the first execution is still running in this instance
+            return entry.response.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the original request", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof CleIdempotenceException cause) {
+                throw cause;
+            }
+            throw new CleIdempotenceException("The original request failed, please retry", HttpStatus.CONFLICT);
+        } catch (TimeoutException ex) {
+            throw new CleIdempotenceException("The original request is still in progress", HttpStatus.CONFLICT);
+        }
+    }
+
+    private ResponseEntity<String> fromStore(String key, String fingerprint) {
+        CleIdempotence stored = repository.findById(key)
+                .orElseThrow(() -> new CleIdempotenceException("The original request failed, please retry",
+                        HttpStatus.CONFLICT));
+        checkFingerprint(stored.getFingerprint(), fingerprint);
+        if (stored.getResponseStatus() == null) {
+            throw new CleIdempotenceException("The original request is still in progress", HttpStatus.CONFLICT);
+        }
+        ResponseEntity<String> response = ResponseEntity.status(stored.getResponseStatus()).body(stored.getResponseBody());
+        Entry entry = new Entry(stored.getFingerprint());
+        entry.response.complete(response);
+        recent.put(key, entry);
+        return response;
+    }
+
+    /**
+     * Tells whether a failure of the action guarantees that no transfer was applied.
+     */
+    private static boolean provesNothingApplied(RuntimeException ex) {
+        return ex instanceof CompteInexistantException
+                || ex instanceof SoldeInsuffisantException
+                || ex instanceof IllegalArgumentException
+                || ex instanceof RejectedExecutionException
+                || ex instanceof CannotAcquireLockException;
+    }
+
+    private static void checkFingerprint(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new CleIdempotenceException("Idempotency-Key already used with different parameters",
+                    HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+    }
+
+    @Scheduled(fixedDelay = 3_600_000)
+    void purgeExpired() {
+        repository.deleteCompletedBefore(LocalDateTime.now().minusHours(retentionHours));
+    }
+
+    private static final class Entry {
+        private final String fingerprint;
+        private final CompletableFuture<ResponseEntity<String>> response = new CompletableFuture<>();
+
+        private Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
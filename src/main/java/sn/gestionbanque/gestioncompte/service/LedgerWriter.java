@@ -0,0 +1,105 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import sn.gestionbanque.gestioncompte.model.CompteBancaire;
+import sn.gestionbanque.gestioncompte.model.Transaction;
+import sn.gestionbanque.gestioncompte.readmodel.LedgerEvent;
+import sn.gestionbanque.gestioncompte.repository.TransactionRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the ledger rows ({@link Transaction}) of every transfer path.
+ * Must be called inside the transaction that changes the balances. Each write publishes a
+ * {@link LedgerEvent}, which feeds the read model once the transaction commits.
+ */
+@Component
+public class LedgerWriter {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}")
+    private int batchSize;
+
+    /**
+     * Builds a ledger entry dated now.
+     * @param account the account associated with the transaction.
+     * @param amount the signed amount of the transaction (negative for a debit).
+     * @return the unsaved transaction.
+     */
+    public Transaction entry(CompteBancaire account, BigDecimal amount) {
+        return entry(account, amount, LocalDateTime.now());
+    }
+
+    /**
+     * Builds a ledger entry with an explicit date.
+     * @param account the account associated with the transaction.
+     * @param amount the signed amount of the transaction (negative for a debit, which is recorded as a withdrawal).
+     * @param date the date of the transaction.
+     * @return the unsaved transaction.
+     */
+    public Transaction entry(CompteBancaire account, BigDecimal amount, LocalDateTime date) {
+        Transaction transaction = new Transaction();
+        transaction.setAccount(account);
+        transaction.setType(amount.signum() < 0 ? Transaction.Type.WITHDRAWAL : Transaction.Type.DEPOSIT);
+        transaction.setAmount(amount);
+        transaction.setTransactionDate(date);
+        return transaction;
+    }
+
+    /**
+     * Records a single transaction.
+     * @param account the account associated with the transaction.
+     * @param amount the signed amount of the transaction.
+     */
+    public void record(CompteBancaire account, BigDecimal amount) {
+        Transaction transaction = transactionRepository.save(entry(account, amount));
+        eventPublisher.publishEvent(new LedgerEvent.Movements(List.of(movement(transaction))));
+    }
+
+    /**
+     * Records many transactions. Ids come from a pooled generator, so Hibernate sends the inserts
+     * as JDBC batches of {@code hibernate.jdbc.batch_size} rows; flushed rows are detached to keep
+     * the persistence context small.
+     * @param transactions the transactions to insert.
+     */
+    public void recordAll(List<Transaction> transactions) {
+        int pending = 0;
+        for (int i = 0; i < transactions.size(); i++) {
+            entityManager.persist(transactions.get(i));
+            if (++pending == batchSize || i == transactions.size() - 1) {
+                entityManager.flush();
+                for (int j = i - pending + 1; j <= i; j++) {
+                    entityManager.detach(transactions.get(j));
+                }
+                pending = 0;
+            }
+        }
+        List<LedgerEvent.Movement> movements = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            movements.add(movement(transaction));
+        }
+        eventPublisher.publishEvent(new LedgerEvent.Movements(movements));
+    }
+
+    private static LedgerEvent.Movement movement(Transaction transaction) {
+        return new LedgerEvent.Movement(transaction.getId(), transaction.getAccount().getId(), transaction.getAmount(),
+                transaction.getTransactionDate());
+    }
+}
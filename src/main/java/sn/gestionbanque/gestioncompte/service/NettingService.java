@@ -0,0 +1,174 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import sn.gestionbanque.gestioncompte.dto.SettlementResult;
+import sn.gestionbanque.gestioncompte.dto.TransferRequest;
+import sn.gestionbanque.gestioncompte.dto.TransferResult;
+import sn.gestionbanque.gestioncompte.engine.InMemoryLedgerEngine;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues transfers for a settlement window and settles them together with multilateral netting
+ * (see {@link BatchTransferService#applyNetted}).
+ * A queued transfer is never dropped: a window whose settlement fails is kept, ahead of newer
+ * transfers, for the next settlement. Outcomes are kept for {@code banque.netting.status-ttl-minutes}.
+ */
+@Service
+public class NettingService {
+
+    private static final Logger log = LoggerFactory.getLogger(NettingService.class);
+
+    @Autowired
+    private BatchTransferService batchTransferService;
+
+    @Autowired(required = false)
+    private InMemoryLedgerEngine ledgerEngine;
+
+    @Value("${banque.transfer.batch.max-size:10000}")
+    private int maxBatchSize;
+
+    @Value("${banque.netting.auto-settle:false}")
+    private boolean autoSettle;
+
+    private final BlockingQueue<QueuedTransfer> queue;
+    /**
+     * Runs settlements one at a time. A lock rather than a monitor: a virtual thread blocked on
+     * the database inside a synchronized method would pin its carrier thread.
+     */
+    private final ReentrantLock settlement = new ReentrantLock();
+    /** Windows whose settlement failed; guarded by {@code settlement}. */
+    private final Deque<QueuedTransfer> retry = new ArrayDeque<>();
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final Cache<Long, SettlementResult> results;
+    private final AtomicLong tickets = new AtomicLong();
+
+    public NettingService(@Value("${banque.netting.max-queued:100000}") int maxQueued,
+                          @Value("${banque.netting.status-ttl-minutes:60}") long statusTtlMinutes) {
+        this.queue = new LinkedBlockingQueue<>(maxQueued);
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(statusTtlMinutes))
+                .build();
+    }
+
+    /**
+     * Queues a transfer for the next settlement.
+     * @param transfer the transfer.
+     * @return the ticket identifying the transfer in the settlement results.
+     * @throws IllegalArgumentException if the transfer is incomplete or its amount is not positive, or if
+     *         the in-memory ledger engine is active.
+     * @throws RejectedExecutionException if the queue is full.
+     */
+    public long enqueue(TransferRequest transfer) {
+        if (ledgerEngine != null) {
+            throw new IllegalArgumentException("Netted transfers are not available while the in-memory ledger engine is active");
+        }
+        if (!BatchTransferService.isValid(transfer)) {
+            throw new IllegalArgumentException("Both account ids and a positive amount are required");
+        }
+        QueuedTransfer queued = new QueuedTransfer(tickets.incrementAndGet(), transfer);
+        pending.add(queued.ticket());
+        if (!queue.offer(queued)) {
+            pending.remove(queued.ticket());
+            throw new RejectedExecutionException("The settlement queue is full");
+        }
+        return queued.ticket();
+    }
+
+    /**
+     * Settles every queued transfer, at most {@code banque.transfer.batch.max-size} per transaction.
+     * Settlements run one at a time.
+     * @return the outcome of each settled transfer.
+     */
+    public List<SettlementResult> settle() {
+        settlement.lock();
+        try {
+            List<SettlementResult> settled = new ArrayList<>();
+            List<QueuedTransfer> window = new ArrayList<>();
+            while (true) {
+                while (window.size() < maxBatchSize && !retry.isEmpty()) {
+                    window.add(retry.pollFirst());
+                }
+                queue.drainTo(window, maxBatchSize - window.size());
+                if (window.isEmpty()) {
+                    return settled;
+                }
+                List<TransferRequest> requests = new ArrayList<>(window.size());
+                for (QueuedTransfer queued : window) {
+                    requests.add(queued.transfer());
+                }
+                List<TransferResult> outcomes;
+                try {
+                    outcomes = batchTransferService.applyNetted(requests);
+                } catch (RuntimeException ex) {
+                    // Nothing was applied: keep the window, in order, for the next settlement
+                    for (int i = window.size() - 1; i >= 0; i--) {
+                        retry.addFirst(window.get(i));
+                    }
+                    throw ex;
+                }
+                for (int i = 0; i < window.size(); i++) {
+                    TransferResult outcome = outcomes.get(i);
+                    SettlementResult result = new SettlementResult(window.get(i).ticket(), outcome.status(),
+                            outcome.message());
+                    results.put(result.ticket(), result);
+                    pending.remove(result.ticket());
+                    settled.add(result);
+                }
+                window.clear();
+            }
+        } finally {
+            settlement.unlock();
+        }
+    }
+
+    /**
+     * Retrieves the outcome of a queued transfer.
+     * @param ticket the ticket returned when the transfer was queued.
+     * @return the outcome, if the transfer was settled and its outcome has not expired.
+     */
+    public Optional<SettlementResult> getResult(long ticket) {
+        return Optional.ofNullable(results.getIfPresent(ticket));
+    }
+
+    /**
+     * Tells whether a queued transfer still waits for a settlement.
+     * @param ticket the ticket returned when the transfer was queued.
+     */
+    public boolean isPending(long ticket) {
+        return pending.contains(ticket);
+    }
+
+    @Scheduled(fixedDelayString = "${banque.netting.window-ms:5000}")
+    void settleWindow() {
+        if (!autoSettle || pending.isEmpty()) {
+            return;
+        }
+        List<SettlementResult> settled = settle();
+        long completed = settled.stream().filter(r -> r.status() == TransferResult.Status.COMPLETED).count();
+        log.info("Settled {} queued transfers, {} completed", settled.size(), completed);
+    }
+
+    private record QueuedTransfer(long ticket, TransferRequest transfer) {
+    }
+}
@@ -0,0 +1,114 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-JVM lock manager that serializes transfers touching the same accounts before they reach
+ * the database. Accounts are hashed onto a fixed array of locks (stripes); a two-account operation
+ * takes its stripes in ascending index order, so it cannot deadlock with another one.
+ * Waiting here holds no database connection.
+ */
+@Component
+public class StripedLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long timeoutMs;
+    private final Timer waitTimer;
+    private final Counter timeouts;
+
+    public StripedLockManager(@Value("${banque.transfer.stripes.count:1024}") int count,
+                              @Value("${banque.transfer.stripes.timeout-ms:2000}") long timeoutMs,
+                              MeterRegistry registry) {
+        if (Integer.bitCount(count) != 1) {
+            throw new IllegalArgumentException("banque.transfer.stripes.count must be a power of two: " + count);
+        }
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = count - 1;
+        this.timeoutMs = timeoutMs;
+        this.waitTimer = Timer.builder("banque.transfer.stripe.wait")
+                .description("Time spent waiting for the in-JVM account stripes of a transfer")
+                .register(registry);
+        this.timeouts = Counter.builder("banque.transfer.stripe.timeouts")
+                .description("Transfers rejected because their stripes were not acquired in time")
+                .register(registry);
+    }
+
+    /**
+     * Locks the stripes of two accounts, in ascending stripe order.
+     * @param firstAccountId the ID of the first account.
+     * @param secondAccountId the ID of the second account.
+     * @return the held stripes, to be released with {@link Stripes#close()}.
+     * @throws CannotAcquireLockException if the stripes could not be acquired within the timeout.
+     */
+    public Stripes lock(long firstAccountId, long secondAccountId) {
+        int a = stripeOf(firstAccountId);
+        int b = stripeOf(secondAccountId);
+        ReentrantLock low = stripes[Math.min(a, b)];
+        ReentrantLock high = a == b ? null : stripes[Math.max(a, b)];
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            if (!low.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw timeout();
+            }
+            if (high != null && !high.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                low.unlock();
+                throw timeout();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            if (low.isHeldByCurrentThread()) {
+                low.unlock();
+            }
+            throw new CannotAcquireLockException("Interrupted while waiting for account stripes", ex);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return new Stripes(low, high);
+    }
+
+    private int stripeOf(long accountId) {
+        // Spread the bits so that consecutive ids do not share stripes with a fixed stride
+        long h = accountId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private CannotAcquireLockException timeout() {
+        timeouts.increment();
+        return new CannotAcquireLockException("Account is busy, stripes not acquired within " + timeoutMs + " ms");
+    }
+
+    /**
+     * Stripes held by the current thread.
+     */
+    public static final class Stripes implements AutoCloseable {
+        private final ReentrantLock low;
+        private final ReentrantLock high;
+
+        private Stripes(ReentrantLock low, ReentrantLock high) {
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public void close() {
+            if (high != null) {
+                high.unlock();
+            }
+            low.unlock();
+        }
+    }
+}
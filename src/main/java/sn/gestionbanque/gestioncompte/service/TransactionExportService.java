@@ -0,0 +1,146 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import sn.gestionbanque.gestioncompte.exception.CompteInexistantException;
+import sn.gestionbanque.gestioncompte.repository.CompteBancaireRepository;
+
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Streams the full transaction history of an account, oldest first.
+ * Rows are read from a forward-only MySQL streaming result set and written to the response as they
+ * arrive, so memory stays constant whatever the size of the history, and no entity is loaded
+ * into a persistence context. The connection is held until the last row has been written.
+ */
+@Service
+public class TransactionExportService {
+
+    private static final String SQL = "select id, amount, transaction_date, transaction_type from transactions "
+            + "where account_id = ? and transaction_date >= ? order by transaction_date, id";
+
+    public enum Format {
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv");
+
+        private final String contentType;
+
+        Format(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    @Autowired
+    private CompteBancaireRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionPartitionManager partitionManager;
+
+    private final JdbcTemplate streamingJdbc;
+
+    public TransactionExportService(DataSource dataSource) {
+        this.streamingJdbc = new JdbcTemplate(dataSource);
+        // Integer.MIN_VALUE makes Connector/J stream rows one by one instead of buffering the result set
+        this.streamingJdbc.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    /**
+     * Prepares the export of the transaction history of an account.
+     * @param accountId the ID of the account.
+     * @param format the format of the export.
+     * @return the body writing the export to the response.
+     * @throws CompteInexistantException if no account is found with the given ID.
+     */
+    public StreamingResponseBody export(Long accountId, Format format) {
+        if (!repository.existsById(accountId)) {
+            throw new CompteInexistantException("Account not found with id: " + accountId);
+        }
+        return switch (format) {
+            case NDJSON -> out -> {
+                try (JsonGenerator json = objectMapper.getFactory().createGenerator(new BufferedOutputStream(out))) {
+                    stream(accountId, (id, amount, date, type) -> {
+                        json.writeStartObject();
+                        json.writeNumberField("id", id);
+                        json.writeNumberField("amount", amount);
+                        json.writeStringField("transactionDate", date.toString());
+                        json.writeStringField("type", type);
+                        json.writeEndObject();
+                        json.writeRaw('\n');
+                    });
+                }
+            };
+            case CSV -> out -> {
+                try (Writer csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                    csv.write("id,amount,transactionDate,type\n");
+                    stream(accountId, (id, amount, date, type) -> {
+                        csv.write(Long.toString(id));
+                        csv.write(',');
+                        csv.write(amount.toPlainString());
+                        csv.write(',');
+                        csv.write(date.toString());
+                        csv.write(',');
+                        csv.write(type);
+                        csv.write('\n');
+                    });
+                }
+            };
+        };
+    }
+
+    private void stream(Long accountId, RowWriter writer) {
+        streamingJdbc.execute((PreparedStatementCreator) connection -> connection.prepareStatement(SQL),
+                (PreparedStatementCallback<Void>) statement -> {
+                    statement.setLong(1, accountId);
+                    statement.setTimestamp(2, Timestamp.valueOf(partitionManager.retentionHorizon()));
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            try {
+                                writer.write(rs.getLong(1), rs.getBigDecimal(2), rs.getObject(3, LocalDateTime.class),
+                                        rs.getString(4));
+                            } catch (IOException ex) {
+                                // The client went away. Closing a streaming result set reads every remaining
+                                // row, so the query is killed on the server first
+                                statement.cancel();
+                                throw new UncheckedIOException(ex);
+                            }
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(long id, BigDecimal amount, LocalDateTime date, String type) throws IOException;
+    }
+}
@@ -0,0 +1,193 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the monthly partitions of {@code transactions} (see {@code partition_transactions.sql}).
+ * Partitions are named {@code pYYYYMM} and hold the rows dated before the first day of the next
+ * month; {@code pmax} catches everything later and is kept empty by creating partitions ahead.
+ * Partitions older than the retention are detached into an archive table or dropped: a metadata
+ * operation instead of deleting their rows one by one.
+ */
+@Component
+public class TransactionPartitionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionPartitionManager.class);
+
+    private static final DateTimeFormatter NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final Pattern MONTHLY = Pattern.compile("p\\d{6}");
+    private static final LocalDateTime NO_HORIZON = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${banque.transactions.partitions.enabled:false}")
+    private boolean enabled;
+
+    @Value("${banque.transactions.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${banque.transactions.partitions.retention-months:0}")
+    private int retentionMonths;
+
+    @Value("${banque.transactions.partitions.archive:true}")
+    private boolean archive;
+
+    /**
+     * Lower bound of the transaction dates still stored. Every query on {@code transactions} carries
+     * it (or a tighter bound), so that MySQL prunes the partitions outside the range. The one
+     * exception is the deletion of an account's transactions, which must reach every partition.
+     * @return the first day of the oldest retained month, or 1970-01-01 without partitioning or retention.
+     */
+    public LocalDateTime retentionHorizon() {
+        if (!enabled || retentionMonths <= 0) {
+            return NO_HORIZON;
+        }
+        return YearMonth.now().minusMonths(retentionMonths).atDay(1).atStartOfDay();
+    }
+
+    /**
+     * Creates the partitions ahead and removes those past the retention. A failing step is logged
+     * and retried on the next run; it never prevents the application from starting.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${banque.transactions.partitions.cron:0 30 0 * * *}")
+    void maintain() {
+        maintain(YearMonth.now());
+    }
+
+    void maintain(YearMonth current) {
+        if (!enabled) {
+            return;
+        }
+        List<String> partitions;
+        try {
+            partitions = partitions();
+            if (partitions.isEmpty()) {
+                log.warn("Table transactions is not partitioned; run partition_transactions.sql first");
+                return;
+            }
+            createAhead(partitions, current);
+        } catch (RuntimeException ex) {
+            log.error("Creating the partitions of transactions ahead failed", ex);
+            return;
+        }
+        if (retentionMonths > 0) {
+            String oldestKept = current.minusMonths(retentionMonths).format(NAME);
+            for (String partition : partitions) {
+                // Names sort chronologically; partitions are created ahead, so the current month is always kept
+                if (MONTHLY.matcher(partition).matches() && partition.compareTo(oldestKept) < 0) {
+                    try {
+                        if (archive) {
+                            detachPartition(partition);
+                        } else {
+                            dropPartition(partition);
+                        }
+                    } catch (RuntimeException ex) {
+                        log.error("Removing partition {} of transactions failed", partition, ex);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves a partition into its own table, {@code transactions_<partition>}, then removes it from
+     * {@code transactions}. The rows are not copied: the partition's tablespace is swapped with the
+     * empty archive table.
+     * Each step can be repeated, so a run interrupted halfway is completed by the next one: the
+     * exchange is skipped once the partition is empty.
+     * @param partition the name of the partition, e.g. {@code p202409}.
+     * @throws IllegalArgumentException if the name is not a monthly partition name.
+     * @throws IllegalStateException if both the partition and the archive table hold rows.
+     */
+    public void detachPartition(String partition) {
+        checkName(partition);
+        String archiveTable = "transactions_" + partition;
+        jdbcTemplate.execute("create table if not exists " + archiveTable + " like transactions");
+        if (!partitionsOf(archiveTable).isEmpty()) {
+            jdbcTemplate.execute("alter table " + archiveTable + " remove partitioning");
+        }
+        if (hasRows("transactions partition (" + partition + ")")) {
+            if (hasRows(archiveTable)) {
+                // Exchanging would swap the archived rows back into transactions
+                throw new IllegalStateException("Partition " + partition + " and table " + archiveTable
+                        + " both hold rows; merge them before detaching");
+            }
+            jdbcTemplate.execute("alter table transactions exchange partition " + partition + " with table " + archiveTable);
+        }
+        jdbcTemplate.execute("alter table transactions drop partition " + partition);
+        log.info("Detached partition {} of transactions into {}", partition, archiveTable);
+    }
+
+    /**
+     * Drops a partition and all its rows.
+     * @param partition the name of the partition, e.g. {@code p202409}.
+     * @throws IllegalArgumentException if the name is not a monthly partition name.
+     */
+    public void dropPartition(String partition) {
+        checkName(partition);
+        jdbcTemplate.execute("alter table transactions drop partition " + partition);
+        log.info("Dropped partition {} of transactions", partition);
+    }
+
+    private void createAhead(List<String> partitions, YearMonth current) {
+        YearMonth last = partitions.stream()
+                .filter(p -> MONTHLY.matcher(p).matches())
+                .map(p -> YearMonth.parse(p, NAME))
+                .max(YearMonth::compareTo)
+                .orElse(current.minusMonths(1));
+        // At least next month, so that its partition exists before the current one's upper bound is reached
+        YearMonth until = current.plusMonths(Math.max(monthsAhead, 1));
+        if (!last.isBefore(until)) {
+            return;
+        }
+        // A single reorganization of pmax, which is empty unless months were missed
+        StringBuilder months = new StringBuilder();
+        for (YearMonth month = last.plusMonths(1); !month.isAfter(until); month = month.plusMonths(1)) {
+            months.append("partition ").append(month.format(NAME))
+                    .append(" values less than ('").append(month.plusMonths(1).atDay(1)).append("'), ");
+        }
+        jdbcTemplate.execute("alter table transactions reorganize partition pmax into ("
+                + months + "partition pmax values less than (maxvalue))");
+        log.info("Created partitions of transactions up to {}", until.format(NAME));
+    }
+
+    private List<String> partitions() {
+        return partitionsOf("transactions");
+    }
+
+    private List<String> partitionsOf(String table) {
+        return jdbcTemplate.queryForList("select partition_name from information_schema.partitions "
+                + "where table_schema = database() and table_name = ? and partition_name is not null "
+                + "order by partition_ordinal_position", String.class, table)
+                .stream()
+                .map(String::toLowerCase)
+                .collect(Collectors.toList());
+    }
+
+    private boolean hasRows(String source) {
+        return !jdbcTemplate.queryForList("select 1 from " + source + " limit 1", Integer.class).isEmpty();
+    }
+
+    private static void checkName(String partition) {
+        if (!MONTHLY.matcher(partition).matches()) {
+            throw new IllegalArgumentException("Not a monthly partition: " + partition);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import sn.gestionbanque.gestioncompte.exception.CompteInexistantException;
+import sn.gestionbanque.gestioncompte.exception.SoldeInsuffisantException;
+import sn.gestionbanque.gestioncompte.model.CompteBancaire;
+import sn.gestionbanque.gestioncompte.repository.CompteBancaireRepository;
+
+import java.math.BigDecimal;
+
+/**
+ * Applies transfers inside a single database transaction.
+ * In pessimistic mode both account rows are locked with {@code SELECT ... FOR UPDATE} in ascending
+ * id order, so two opposite transfers (A to B and B to A) can never deadlock each other.
+ * In optimistic mode no lock is taken and a concurrent update is detected on commit through
+ * the account {@code @Version}.
+ * In direct mode the balances are changed by conditional {@code UPDATE} statements and
+ * no account entity is loaded at all.
+ */
+@Service
+public class TransferEngine {
+
+    @Autowired
+    private CompteBancaireRepository repository;
+
+    @Autowired
+    private LedgerWriter ledgerWriter;
+
+    @Autowired
+    private BalanceCache balanceCache;
+
+    private final Timer lockWait;
+
+    public TransferEngine(MeterRegistry registry) {
+        this.lockWait = Timer.builder("banque.transfer.lock.wait")
+                .description("Time spent acquiring the account row locks of a transfer")
+                .register(registry);
+    }
+
+    /**
+     * Performs a transfer between two accounts under pessimistic row locks.
+     * @param fromAccountId the ID of the account from which the amount will be transferred.
+     * @param toAccountId the ID of the account to which the amount will be transferred.
+     * @param amount the amount to be transferred.
+     * @throws CompteInexistantException if any of the accounts is not found.
+     * @throws SoldeInsuffisantException if the source account has insufficient funds.
+     */
+    @Transactional
+    public void transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        Timer.Sample sample = Timer.start();
+        CompteBancaire first = lock(Math.min(fromAccountId, toAccountId));
+        CompteBancaire second = fromAccountId.equals(toAccountId) ? first : lock(Math.max(fromAccountId, toAccountId));
+        sample.stop(lockWait);
+
+        CompteBancaire fromAccount = first.getId().equals(fromAccountId) ? first : second;
+        CompteBancaire toAccount = first.getId().equals(toAccountId) ? first : second;
+        apply(fromAccount, toAccount, amount);
+    }
+
+    /**
+     * Performs a transfer between two accounts without taking row locks.
+     * @param fromAccountId the ID of the account from which the amount will be transferred.
+     * @param toAccountId the ID of the account to which the amount will be transferred.
+     * @param amount the amount to be transferred.
+     * @throws CompteInexistantException if any of the accounts is not found.
+     * @throws SoldeInsuffisantException if the source account has insufficient funds.
+     * @throws org.springframework.dao.OptimisticLockingFailureException if either account was
+     *         modified by another transaction before this one committed.
+     */
+    @Transactional
+    public void transferOptimistic(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        CompteBancaire fromAccount = find(fromAccountId);
+        CompteBancaire toAccount = fromAccountId.equals(toAccountId) ? fromAccount : find(toAccountId);
+        apply(fromAccount, toAccount, amount);
+    }
+
+    /**
+     * Performs a transfer between two accounts with set-based updates: one conditional debit,
+     * one credit and the ledger inserts. The rows are updated in ascending id order, so the
+     * implicit row locks are taken in the same order as in pessimistic mode.
+     * @param fromAccountId the ID of the account from which the amount will be transferred.
+     * @param toAccountId the ID of the account to which the amount will be transferred.
+     * @param amount the amount to be transferred.
+     * @throws CompteInexistantException if any of the accounts is not found.
+     * @throws SoldeInsuffisantException if the source account has insufficient funds.
+     */
+    @Transactional
+    public void transferDirect(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        if (fromAccountId <= toAccountId) {
+            debit(fromAccountId, amount);
+            credit(toAccountId, amount);
+        } else {
+            credit(toAccountId, amount);
+            debit(fromAccountId, amount);
+        }
+
+        ledgerWriter.record(repository.getReferenceById(fromAccountId), amount.negate());
+        ledgerWriter.record(repository.getReferenceById(toAccountId), amount);
+        balanceCache.evict(fromAccountId, toAccountId);
+    }
+
+    private void debit(Long id, BigDecimal amount) {
+        if (repository.debit(id, amount) == 0) {
+            // Only the failure path pays for the extra lookup that tells the two cases apart
+            if (!repository.existsById(id)) {
+                throw new CompteInexistantException("Account not found with id: " + id);
+            }
+            throw new SoldeInsuffisantException("Insufficient funds in account with id: " + id);
+        }
+    }
+
+    private void credit(Long id, BigDecimal amount) {
+        if (repository.credit(id, amount) == 0) {
+            throw new CompteInexistantException("Account not found with id: " + id);
+        }
+    }
+
+    private void apply(CompteBancaire fromAccount, CompteBancaire toAccount, BigDecimal amount) {
+        if (fromAccount.getBalance().compareTo(amount) < 0) {
+            throw new SoldeInsuffisantException("Insufficient funds in account with id: " + fromAccount.getId());
+        }
+
+        fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
+        toAccount.setBalance(toAccount.getBalance().add(amount));
+
+        ledgerWriter.record(fromAccount, amount.negate()); // Debit from source account
+        ledgerWriter.record(toAccount, amount); // Credit to destination account
+        balanceCache.put(fromAccount);
+        balanceCache.put(toAccount);
+    }
+
+    private CompteBancaire lock(Long id) {
+        return repository.findByIdForUpdate(id)
+                .orElseThrow(() -> new CompteInexistantException("Account not found with id: " + id));
+    }
+
+    private CompteBancaire find(Long id) {
+        return repository.findById(id)
+                .orElseThrow(() -> new CompteInexistantException("Account not found with id: " + id));
+    }
+}
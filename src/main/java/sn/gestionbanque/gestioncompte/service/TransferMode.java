@@ -0,0 +1,16 @@
+package sn.gestionbanque.gestioncompte.service;
+
+/**
+ * Concurrency strategy used by {@link CompteBancaireService#transfer}.
+ * Selected with the {@code banque.transfer.mode} property.
+ */
+public enum TransferMode {
+    /** Row locks taken with SELECT ... FOR UPDATE in ascending id order. */
+    PESSIMISTIC,
+    /** No row locks; conflicts are detected on commit through the account version and retried. */
+    OPTIMISTIC,
+    /** Conditional set-based UPDATE statements; no entity is loaded. */
+    DIRECT,
+    /** In-memory single-writer engine with a write-ahead journal, projected asynchronously into the database. */
+    IN_MEMORY
+}
@@ -0,0 +1,174 @@
+package sn.gestionbanque.gestioncompte.engine;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sn.gestionbanque.gestioncompte.exception.CompteInexistantException;
+import sn.gestionbanque.gestioncompte.exception.SoldeInsuffisantException;
+import sn.gestionbanque.gestioncompte.model.CompteBancaire;
+import sn.gestionbanque.gestioncompte.repository.CompteBancaireRepository;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InMemoryLedgerEngineTest {
+
+    private static final int SEGMENT_BYTES = 4 * MappedJournal.RECORD_SIZE;
+
+    @TempDir
+    private Path directory;
+
+    @Mock
+    private CompteBancaireRepository repository;
+
+    @Mock
+    private JournalProjection projection;
+
+    private final List<Long> projected = new CopyOnWriteArrayList<>();
+
+    private InMemoryLedgerEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new InMemoryLedgerEngine();
+        ReflectionTestUtils.setField(engine, "repository", repository);
+        ReflectionTestUtils.setField(engine, "projection", projection);
+        ReflectionTestUtils.setField(engine, "registry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(engine, "partitionCount", 2);
+        ReflectionTestUtils.setField(engine, "ringSize", 16);
+        ReflectionTestUtils.setField(engine, "journalDirectory", directory.toString());
+        ReflectionTestUtils.setField(engine, "segmentBytes", SEGMENT_BYTES);
+        ReflectionTestUtils.setField(engine, "maxGroup", 8);
+        ReflectionTestUtils.setField(engine, "projectionBatchSize", 2);
+        lenient().doAnswer(invocation -> {
+            List<JournalRecord> batch = invocation.getArgument(0);
+            batch.forEach(record -> projected.add(record.sequence()));
+            return null;
+        }).when(projection).project(anyList());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        engine.stop();
+    }
+
+    @Test
+    void recoveryProjectsOnlyTheRecordsAboveThePrimaryCheckpoint() {
+        MappedJournal journal = new MappedJournal(directory, SEGMENT_BYTES);
+        for (long sequence = 1; sequence <= 5; sequence++) {
+            journal.append(new JournalRecord(sequence, 1L, 2L, BigDecimal.ONE, 0L));
+        }
+        journal.force();
+        when(projection.lastProjectedSequence()).thenReturn(3L);
+
+        engine.start();
+
+        assertEquals(List.of(4L, 5L), projected);
+    }
+
+    @Test
+    void journaledTransferIsAppliedProjectedAndReplayedAfterRestart() throws InterruptedException {
+        account(1L, "100");
+        account(2L, "0");
+        engine.start();
+
+        engine.transfer(1L, 2L, new BigDecimal("30.00"));
+
+        assertEquals(0, new BigDecimal("70").compareTo(engine.balance(1L)));
+        // The credit is handed to the partition of account 2 and applied shortly after the acknowledgement
+        awaitBalance(2L, "30");
+        awaitProjected(1);
+        engine.stop();
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        new MappedJournal(directory, SEGMENT_BYTES).replay(replayed::add);
+        assertEquals(1, replayed.size());
+        assertEquals(1L, replayed.get(0).fromAccountId());
+        assertEquals(2L, replayed.get(0).toAccountId());
+        assertEquals(new BigDecimal("30.00"), replayed.get(0).amount());
+    }
+
+    @Test
+    void creditLandsBeforeTheNextDebitOfTheCreditedAccount() throws InterruptedException {
+        // Accounts 1 and 3 belong to partition 1, account 2 to partition 0
+        account(1L, "100");
+        account(2L, "0");
+        account(3L, "0");
+        engine.start();
+
+        engine.transfer(1L, 2L, new BigDecimal("100"));
+        engine.transfer(2L, 3L, new BigDecimal("100"));
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(engine.balance(1L)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(engine.balance(2L)));
+        awaitBalance(3L, "100");
+    }
+
+    @Test
+    void rejectedDebitCreditsNothing() {
+        account(1L, "10");
+        account(2L, "5");
+        engine.start();
+
+        assertThrows(SoldeInsuffisantException.class, () -> engine.transfer(1L, 2L, new BigDecimal("11")));
+        assertThrows(CompteInexistantException.class, () -> engine.transfer(1L, 9L, BigDecimal.ONE));
+
+        assertEquals(0, BigDecimal.TEN.compareTo(engine.balance(1L)));
+        assertEquals(0, new BigDecimal("5").compareTo(engine.balance(2L)));
+    }
+
+    @Test
+    void transfersAfterStopAreRejectedInsteadOfHanging() throws InterruptedException {
+        engine.start();
+        engine.stop();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThrows(RejectedExecutionException.class,
+                () -> engine.transfer(1L, 2L, BigDecimal.ONE)));
+    }
+
+    private void account(long id, String balance) {
+        CompteBancaire account = new CompteBancaire();
+        account.setId(id);
+        account.setBalance(new BigDecimal(balance));
+        when(repository.findById(id)).thenReturn(Optional.of(account));
+    }
+
+    private void awaitBalance(long accountId, String expected) throws InterruptedException {
+        BigDecimal balance = new BigDecimal(expected);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (balance.compareTo(engine.balance(accountId)) != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, balance.compareTo(engine.balance(accountId)));
+    }
+
+    private void awaitProjected(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (projected.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, projected.size());
+    }
+}
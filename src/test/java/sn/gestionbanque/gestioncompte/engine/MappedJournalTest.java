@@ -0,0 +1,128 @@
+package sn.gestionbanque.gestioncompte.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MappedJournalTest {
+
+    private static final int SEGMENT_BYTES = 4 * MappedJournal.RECORD_SIZE;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void replayAfterRestartReturnsEveryRecordAcrossSegments() {
+        MappedJournal journal = new MappedJournal(directory, SEGMENT_BYTES);
+        append(journal, 1, 10);
+        journal.force();
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        long last = new MappedJournal(directory, SEGMENT_BYTES).replay(replayed::add);
+
+        assertEquals(10, last);
+        assertEquals(3, segments().size());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L),
+                replayed.stream().map(JournalRecord::sequence).toList());
+        assertEquals(record(7), replayed.get(6));
+    }
+
+    @Test
+    void replayStopsAtARecordWithABadChecksum() throws IOException {
+        MappedJournal journal = new MappedJournal(directory, SEGMENT_BYTES);
+        append(journal, 1, 3);
+        journal.force();
+        // Flips a byte of the amount of the second record
+        overwrite(segments().get(0), MappedJournal.RECORD_SIZE + 3 * Long.BYTES, new byte[] {0x7f});
+
+        assertEquals(List.of(1L), replay());
+    }
+
+    @Test
+    void tornTailIsIgnoredAndOverwrittenAfterRestart() throws IOException {
+        MappedJournal journal = new MappedJournal(directory, SEGMENT_BYTES);
+        append(journal, 1, 2);
+        journal.force();
+        // Third record cut short: its sequence and accounts reached the disk, not its checksum
+        ByteBuffer torn = ByteBuffer.allocate(3 * Long.BYTES).putLong(3).putLong(1).putLong(2);
+        overwrite(segments().get(0), 2 * MappedJournal.RECORD_SIZE, torn.array());
+
+        assertEquals(List.of(1L, 2L), replay());
+
+        MappedJournal restarted = new MappedJournal(directory, SEGMENT_BYTES);
+        append(restarted, 3, 3);
+        restarted.force();
+        assertEquals(List.of(1L, 2L, 3L), replay());
+    }
+
+    @Test
+    void rewindUndoesTheAppendsSinceTheMark() {
+        MappedJournal journal = new MappedJournal(directory, SEGMENT_BYTES);
+        append(journal, 1, 3);
+        journal.force();
+        MappedJournal.Mark mark = journal.mark();
+        append(journal, 4, 6);
+
+        journal.rewind(mark);
+
+        assertEquals(List.of(1L, 2L, 3L), replay());
+        assertEquals(1, segments().size());
+    }
+
+    @Test
+    void truncateDeletesOnlyFullyProjectedSegments() {
+        MappedJournal journal = new MappedJournal(directory, SEGMENT_BYTES);
+        append(journal, 1, 10);
+        journal.force();
+
+        journal.truncate(6);
+
+        assertEquals(List.of(5L, 6L, 7L, 8L, 9L, 10L), replay());
+
+        journal.truncate(10);
+
+        assertEquals(List.of(9L, 10L), replay());
+    }
+
+    private List<Long> replay() {
+        List<Long> sequences = new ArrayList<>();
+        new MappedJournal(directory, SEGMENT_BYTES).replay(record -> sequences.add(record.sequence()));
+        return sequences;
+    }
+
+    private static void append(MappedJournal journal, long first, long last) {
+        for (long sequence = first; sequence <= last; sequence++) {
+            journal.append(record(sequence));
+        }
+    }
+
+    private static JournalRecord record(long sequence) {
+        return new JournalRecord(sequence, 1L, 2L, new BigDecimal("12.50"), 1_700_000_000_000L + sequence);
+    }
+
+    private static void overwrite(Path segment, int position, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+
+    private List<Path> segments() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package sn.gestionbanque.gestioncompte.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferTest {
+
+    @Test
+    void keepsFifoOrderAcrossWraparound() {
+        RingBuffer<Integer> ring = new RingBuffer<>(4);
+        List<Integer> polled = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(ring.offer(2 * i));
+            assertTrue(ring.offer(2 * i + 1));
+            polled.add(ring.poll());
+            polled.add(ring.poll());
+        }
+
+        assertEquals(20, polled.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, polled.get(i));
+        }
+        assertNull(ring.poll());
+    }
+
+    @Test
+    void rejectsOffersWhenFullUntilPolled() {
+        RingBuffer<Integer> ring = new RingBuffer<>(2);
+        assertTrue(ring.offer(1));
+        assertTrue(ring.offer(2));
+
+        assertFalse(ring.offer(3));
+        assertEquals(1, ring.poll());
+        assertTrue(ring.offer(3));
+        assertEquals(2, ring.poll());
+        assertEquals(3, ring.poll());
+    }
+
+    @Test
+    void concurrentProducersLoseNothing() throws InterruptedException {
+        RingBuffer<Integer> ring = new RingBuffer<>(8);
+        int producers = 4;
+        int perProducer = 10_000;
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    while (!ring.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+            });
+        }
+        start.countDown();
+
+        int[] lastByProducer = new int[producers];
+        Arrays.fill(lastByProducer, -1);
+        for (int received = 0; received < producers * perProducer; ) {
+            Integer value = ring.poll();
+            if (value == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int producer = value / perProducer;
+            // Each producer's elements come out in the order it offered them
+            assertEquals(lastByProducer[producer] + 1, value % perProducer);
+            lastByProducer[producer] = value % perProducer;
+            received++;
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+        assertNull(ring.poll());
+    }
+
+    @Test
+    void capacityMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(6));
+    }
+}
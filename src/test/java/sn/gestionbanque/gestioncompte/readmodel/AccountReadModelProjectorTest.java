@@ -0,0 +1,165 @@
+package sn.gestionbanque.gestioncompte.readmodel;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AccountReadModelProjectorTest {
+
+    private static final LocalDateTime MORNING = LocalDateTime.of(2024, 6, 15, 9, 0);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AccountReadModelProjector projector;
+
+    @BeforeEach
+    void setUp() {
+        projector = new AccountReadModelProjector(new SimpleMeterRegistry(), transactionManager);
+        ReflectionTestUtils.setField(projector, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(projector, "batchSize", 1000);
+    }
+
+    @Test
+    void deltasAreSummedPerAccountAndPerDay() {
+        projector.apply(List.of(
+                new LedgerEvent.Movements(List.of(movement(1, 1L, "10", MORNING), movement(2, 2L, "-10", MORNING))),
+                new LedgerEvent.Movements(List.of(movement(3, 1L, "-4", MORNING.plusHours(2)),
+                        movement(4, 1L, "7", MORNING.plusDays(1)))),
+                new LedgerEvent.AccountOpened(3L, new BigDecimal("50"))));
+
+        List<Object[]> summaries = captured("insert into account_read_model");
+        assertArrayEquals(new Object[] {1L, new BigDecimal("13"), Timestamp.valueOf(MORNING.plusDays(1)), 3L},
+                summaries.get(0));
+        assertArrayEquals(new Object[] {2L, new BigDecimal("-10"), Timestamp.valueOf(MORNING), 1L}, summaries.get(1));
+        assertArrayEquals(new Object[] {3L, new BigDecimal("50"), null, 0L}, summaries.get(2));
+
+        List<Object[]> flows = captured("insert into account_daily_flows");
+        assertEquals(3, flows.size());
+        assertArrayEquals(new Object[] {1L, Date.valueOf(MORNING.toLocalDate()), new BigDecimal("10"), new BigDecimal("4")},
+                flows.get(0));
+        assertArrayEquals(new Object[] {1L, Date.valueOf(MORNING.toLocalDate().plusDays(1)), new BigDecimal("7"),
+                BigDecimal.ZERO}, flows.get(1));
+        assertArrayEquals(new Object[] {2L, Date.valueOf(MORNING.toLocalDate()), BigDecimal.ZERO, new BigDecimal("10")},
+                flows.get(2));
+    }
+
+    @Test
+    void closingAnAccountFlushesEarlierDeltasBeforeDeletingItsRows() {
+        projector.apply(List.of(
+                new LedgerEvent.Movements(List.of(movement(1, 1L, "5", MORNING))),
+                new LedgerEvent.AccountClosed(1L),
+                new LedgerEvent.Movements(List.of(movement(2, 2L, "5", MORNING)))));
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).batchUpdate(startsWith("insert into account_read_model"), any(List.class));
+        order.verify(jdbcTemplate).update("delete from account_read_model where account_id = ?", 1L);
+        order.verify(jdbcTemplate).batchUpdate(startsWith("insert into account_read_model"), any(List.class));
+
+        List<Object[]> summaries = captured("insert into account_read_model");
+        assertEquals(2, summaries.size());
+        assertEquals(1L, summaries.get(0)[0]);
+        assertEquals(2L, summaries.get(1)[0]);
+    }
+
+    @Test
+    void eventsAlreadyInTheSnapshotAreSkipped() {
+        when(jdbcTemplate.queryForList(startsWith("select id from transactions"), eq(Long.class), any(Object[].class)))
+                .thenReturn(List.of(100L));
+        when(jdbcTemplate.queryForList(startsWith("select id from bank_accounts"), eq(Long.class), any(Object[].class)))
+                .thenReturn(List.of(5L));
+        LedgerEvent.Movement seen = movement(100, 1L, "5", MORNING);
+        LedgerEvent.Movement unseen = movement(101, 2L, "-5", MORNING);
+
+        List<LedgerEvent> remaining = projector.notInSnapshot(List.of(
+                new LedgerEvent.Movements(List.of(seen, unseen)),
+                new LedgerEvent.AccountOpened(5L, BigDecimal.TEN),
+                new LedgerEvent.AccountOpened(6L, BigDecimal.ONE),
+                new LedgerEvent.AccountClosed(7L)));
+
+        assertEquals(List.of(
+                new LedgerEvent.Movements(List.of(unseen)),
+                new LedgerEvent.AccountOpened(6L, BigDecimal.ONE),
+                new LedgerEvent.AccountClosed(7L)), remaining);
+    }
+
+    @Test
+    void rebuildWritesEachAccountChunkBeforeReadingTheNext() {
+        ReflectionTestUtils.setField(projector, "batchSize", 2);
+        ReflectionTestUtils.setField(projector, "queue", new LinkedBlockingQueue<LedgerEvent>());
+        Object[] first = {1L, BigDecimal.TEN, null, 0L};
+        Object[] second = {2L, BigDecimal.ONE, Timestamp.valueOf(MORNING), 1L};
+        Object[] third = {5L, BigDecimal.ZERO, null, 0L};
+        Object[] flow = {2L, Date.valueOf(MORNING.toLocalDate()), BigDecimal.ONE, BigDecimal.ZERO};
+        when(jdbcTemplate.query(startsWith("select a.id"), any(RowMapper.class), eq(0L), eq(2)))
+                .thenReturn(List.of(first, second));
+        when(jdbcTemplate.query(startsWith("select a.id"), any(RowMapper.class), eq(2L), eq(2)))
+                .thenReturn(List.<Object[]>of(third));
+        when(jdbcTemplate.query(startsWith("select a.id"), any(RowMapper.class), eq(5L), eq(2)))
+                .thenReturn(List.of());
+        when(jdbcTemplate.query(startsWith("select account_id"), any(RowMapper.class), eq(0L), eq(2L), any(Date.class)))
+                .thenReturn(List.<Object[]>of(flow));
+        when(jdbcTemplate.query(startsWith("select account_id"), any(RowMapper.class), eq(2L), eq(5L), any(Date.class)))
+                .thenReturn(List.of());
+
+        assertEquals(List.of(), projector.doRebuild());
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update("delete from account_read_model");
+        order.verify(jdbcTemplate).query(startsWith("select a.id"), any(RowMapper.class), eq(0L), eq(2));
+        order.verify(jdbcTemplate).batchUpdate(startsWith("insert into account_read_model"), eq(List.of(first, second)));
+        order.verify(jdbcTemplate).batchUpdate(startsWith("insert into account_daily_flows"), eq(List.<Object[]>of(flow)));
+        order.verify(jdbcTemplate).query(startsWith("select a.id"), any(RowMapper.class), eq(2L), eq(2));
+        order.verify(jdbcTemplate).batchUpdate(startsWith("insert into account_read_model"), eq(List.<Object[]>of(third)));
+        order.verify(jdbcTemplate).query(startsWith("select a.id"), any(RowMapper.class), eq(5L), eq(2));
+    }
+
+    /**
+     * All the rows written by the given upsert, ordered by account then day.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object[]> captured(String upsert) {
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(startsWith(upsert), rows.capture());
+        return rows.getAllValues().stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.<Object[], Long>comparing(row -> (Long) row[0])
+                        .thenComparing(row -> row[1] instanceof Date day ? day.toLocalDate().toEpochDay() : 0L))
+                .toList();
+    }
+
+    private static LedgerEvent.Movement movement(long transactionId, long accountId, String amount, LocalDateTime date) {
+        return new LedgerEvent.Movement(transactionId, accountId, new BigDecimal(amount), date);
+    }
+}
@@ -0,0 +1,203 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import sn.gestionbanque.gestioncompte.dto.BalanceSnapshot;
+import sn.gestionbanque.gestioncompte.exception.CompteInexistantException;
+import sn.gestionbanque.gestioncompte.model.BalanceCheckpoint;
+import sn.gestionbanque.gestioncompte.repository.BalanceCheckpointRepository;
+import sn.gestionbanque.gestioncompte.repository.CompteBancaireRepository;
+import sn.gestionbanque.gestioncompte.repository.TransactionRepository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceCheckpointServiceTest {
+
+    private static final LocalDateTime HORIZON = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final LocalDateTime OPENED = LocalDateTime.of(2024, 1, 1, 9, 0);
+    private static final LocalDateTime AS_OF = LocalDateTime.of(2024, 6, 15, 12, 0);
+
+    @Mock
+    private BalanceCheckpointRepository checkpointRepository;
+
+    @Mock
+    private CompteBancaireRepository repository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionPartitionManager partitionManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BalanceCheckpointService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new BalanceCheckpointService(transactionManager);
+        ReflectionTestUtils.setField(service, "checkpointRepository", checkpointRepository);
+        ReflectionTestUtils.setField(service, "repository", repository);
+        ReflectionTestUtils.setField(service, "transactionRepository", transactionRepository);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "partitionManager", partitionManager);
+        ReflectionTestUtils.setField(service, "chunkSize", 1000);
+        ReflectionTestUtils.setField(service, "settleSeconds", 60L);
+    }
+
+    @Test
+    void balanceAddsTheTransactionsAfterTheCheckpointBefore() {
+        openedAt(OPENED);
+        LocalDateTime day = AS_OF.toLocalDate().atStartOfDay();
+        when(checkpointRepository.findFirstByAccountIdAndCheckpointAtLessThanEqualOrderByCheckpointAtDesc(7L, AS_OF))
+                .thenReturn(Optional.of(checkpoint(day, "100")));
+        when(transactionRepository.sumAmountBetween(7L, day, AS_OF)).thenReturn(new BigDecimal("-30"));
+
+        assertEquals(new BigDecimal("70"), service.getBalanceAt(7L, AS_OF));
+    }
+
+    @Test
+    void balanceSubtractsTheTransactionsUpToTheCheckpointAfter() {
+        openedAt(OPENED);
+        LocalDateTime next = AS_OF.toLocalDate().plusDays(1).atStartOfDay();
+        when(checkpointRepository.findFirstByAccountIdAndCheckpointAtLessThanEqualOrderByCheckpointAtDesc(7L, AS_OF))
+                .thenReturn(Optional.empty());
+        when(checkpointRepository.findFirstByAccountIdAndCheckpointAtGreaterThanOrderByCheckpointAtAsc(7L, AS_OF))
+                .thenReturn(Optional.of(checkpoint(next, "100")));
+        when(transactionRepository.sumAmountBetween(7L, AS_OF, next)).thenReturn(new BigDecimal("25"));
+
+        assertEquals(new BigDecimal("75"), service.getBalanceAt(7L, AS_OF));
+    }
+
+    @Test
+    void balanceWithoutCheckpointWalksBackFromTheCurrentBalance() {
+        openedAt(OPENED);
+        when(checkpointRepository.findFirstByAccountIdAndCheckpointAtLessThanEqualOrderByCheckpointAtDesc(7L, AS_OF))
+                .thenReturn(Optional.empty());
+        when(checkpointRepository.findFirstByAccountIdAndCheckpointAtGreaterThanOrderByCheckpointAtAsc(7L, AS_OF))
+                .thenReturn(Optional.empty());
+        when(repository.findBalanceById(7L)).thenReturn(Optional.of(new BalanceSnapshot(new BigDecimal("40"), 3)));
+        when(transactionRepository.sumAmountBetween(eq(7L), eq(AS_OF), any())).thenReturn(new BigDecimal("-10"));
+
+        assertEquals(new BigDecimal("50"), service.getBalanceAt(7L, AS_OF));
+    }
+
+    @Test
+    void balanceBeforeTheAccountExistedIsZero() {
+        openedAt(OPENED);
+
+        assertEquals(BigDecimal.ZERO, service.getBalanceAt(7L, OPENED.minusSeconds(1)));
+        verifyNoInteractions(checkpointRepository, transactionRepository);
+    }
+
+    @Test
+    void balanceOfAnUnknownAccountIsRejected() {
+        when(partitionManager.retentionHorizon()).thenReturn(HORIZON);
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Timestamp>>any(), eq(7L))).thenReturn(List.of());
+
+        assertThrows(CompteInexistantException.class, () -> service.getBalanceAt(7L, AS_OF));
+    }
+
+    @Test
+    void balancePastTheRetentionIsRejected() {
+        when(partitionManager.retentionHorizon()).thenReturn(HORIZON);
+
+        assertThrows(IllegalArgumentException.class, () -> service.getBalanceAt(7L, HORIZON.minusDays(1)));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void checkpointsArePostponedUntilTheirTimeIsSettled() {
+        assertEquals(0, service.takeCheckpoints(LocalDateTime.now()));
+        verifyNoInteractions(checkpointRepository, jdbcTemplate);
+    }
+
+    @Test
+    void checkpointsCoverTheAccountsMovedSinceTheLatestRun() {
+        LocalDateTime at = LocalDateTime.of(2024, 6, 15, 0, 0);
+        LocalDateTime latest = at.minusDays(3);
+        when(checkpointRepository.existsByCheckpointAt(at)).thenReturn(false);
+        when(checkpointRepository.findLatestCheckpointAt()).thenReturn(Optional.of(latest));
+        Timestamp atTs = Timestamp.valueOf(at);
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Object[]>>any(),
+                eq(atTs), eq(0L), eq(atTs), eq(Timestamp.valueOf(latest)), eq(atTs), eq(1000)))
+                .thenReturn(List.<Object[]>of(new Object[] {5L, atTs, BigDecimal.ONE}));
+
+        assertEquals(1, service.takeCheckpoints(at));
+        verify(jdbcTemplate).batchUpdate(anyString(), ArgumentMatchers.<List<Object[]>>any());
+    }
+
+    @Test
+    void checkpointsAreTakenOncePerTime() {
+        LocalDateTime at = LocalDateTime.of(2024, 6, 15, 0, 0);
+        when(checkpointRepository.existsByCheckpointAt(at)).thenReturn(true);
+
+        assertEquals(0, service.takeCheckpoints(at));
+        verify(checkpointRepository, never()).findLatestCheckpointAt();
+    }
+
+    @Test
+    void backfillSkipsTheLedgerScanOnceTheRetentionIsCovered() {
+        when(partitionManager.retentionHorizon()).thenReturn(HORIZON);
+        when(checkpointRepository.findEarliestCheckpointAt()).thenReturn(Optional.of(HORIZON.plusMonths(1)));
+
+        assertEquals(0, service.backfillMonthStarts());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void backfillScansForTheFirstTransactionOnlyOnce() {
+        when(partitionManager.retentionHorizon()).thenReturn(HORIZON);
+        when(checkpointRepository.findEarliestCheckpointAt()).thenReturn(Optional.of(LocalDateTime.of(2024, 4, 1, 0, 0)));
+        when(jdbcTemplate.queryForObject(anyString(), eq(LocalDateTime.class)))
+                .thenReturn(LocalDateTime.of(2024, 3, 10, 8, 0));
+
+        // The history from the first month on is already covered
+        assertEquals(0, service.backfillMonthStarts());
+        assertEquals(0, service.backfillMonthStarts());
+        verify(jdbcTemplate).queryForObject(anyString(), eq(LocalDateTime.class));
+        verify(checkpointRepository, never()).existsByCheckpointAt(any());
+    }
+
+    private void openedAt(LocalDateTime openedAt) {
+        when(partitionManager.retentionHorizon()).thenReturn(HORIZON);
+        when(jdbcTemplate.query(anyString(), ArgumentMatchers.<RowMapper<Timestamp>>any(), eq(7L)))
+                .thenReturn(List.of(Timestamp.valueOf(openedAt)));
+    }
+
+    private static BalanceCheckpoint checkpoint(LocalDateTime at, String balance) {
+        BalanceCheckpoint checkpoint = new BalanceCheckpoint();
+        checkpoint.setAccountId(7L);
+        checkpoint.setCheckpointAt(at);
+        checkpoint.setBalance(new BigDecimal(balance));
+        return checkpoint;
+    }
+}
@@ -0,0 +1,179 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sn.gestionbanque.gestioncompte.dto.TransferRequest;
+import sn.gestionbanque.gestioncompte.dto.TransferResult;
+import sn.gestionbanque.gestioncompte.model.CompteBancaire;
+import sn.gestionbanque.gestioncompte.repository.CompteBancaireRepository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BatchTransferServiceTest {
+
+    @Mock
+    private CompteBancaireRepository repository;
+
+    @Mock
+    private LedgerWriter ledgerWriter;
+
+    @Mock
+    private BalanceCache balanceCache;
+
+    private BatchTransferService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new BatchTransferService();
+        ReflectionTestUtils.setField(service, "repository", repository);
+        ReflectionTestUtils.setField(service, "ledgerWriter", ledgerWriter);
+        ReflectionTestUtils.setField(service, "balanceCache", balanceCache);
+        ReflectionTestUtils.setField(service, "maxBatchSize", 100);
+    }
+
+    @Test
+    void batchAppliesTransfersInRequestOrderAgainstTheRunningBalances() {
+        CompteBancaire a = account(1L, "10");
+        CompteBancaire b = account(2L, "0");
+        when(repository.findAllByIdForUpdate(anyList())).thenReturn(List.of(a, b));
+
+        // 1 is only covered by the credit of 0, and 2 no longer is once 1 is applied
+        List<TransferResult> results = service.apply(List.of(
+                transfer(1L, 2L, "10"),
+                transfer(2L, 1L, "4"),
+                transfer(1L, 2L, "5")));
+
+        assertEquals(List.of(TransferResult.Status.COMPLETED, TransferResult.Status.COMPLETED,
+                TransferResult.Status.INSUFFICIENT_FUNDS), statuses(results));
+        assertEquals(new BigDecimal("4"), a.getBalance());
+        assertEquals(new BigDecimal("6"), b.getBalance());
+        verify(ledgerWriter, never()).entry(a, new BigDecimal("-5"));
+    }
+
+    @Test
+    void batchReportsInvalidAndUnknownTransfersWithoutBlockingTheOthers() {
+        CompteBancaire a = account(1L, "10");
+        CompteBancaire b = account(2L, "0");
+        when(repository.findAllByIdForUpdate(anyList())).thenReturn(List.of(a, b));
+
+        List<TransferResult> results = service.apply(Arrays.asList(
+                transfer(1L, 2L, "0"),
+                null,
+                transfer(9L, 2L, "5"),
+                transfer(1L, 2L, "10")));
+
+        assertEquals(List.of(TransferResult.Status.INVALID, TransferResult.Status.INVALID,
+                TransferResult.Status.ACCOUNT_NOT_FOUND, TransferResult.Status.COMPLETED), statuses(results));
+        assertEquals(new BigDecimal("10"), b.getBalance());
+    }
+
+    @Test
+    void batchLargerThanTheMaximumIsRejected() {
+        List<TransferRequest> transfers = new ArrayList<>();
+        for (int i = 0; i <= 100; i++) {
+            transfers.add(transfer(1L, 2L, "1"));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> service.apply(transfers));
+        verify(repository, never()).findAllByIdForUpdate(anyList());
+    }
+
+    @Test
+    void nettingRejectsTheLatestOutgoingTransferFirst() {
+        CompteBancaire a = account(1L, "10");
+        CompteBancaire b = account(2L, "0");
+        CompteBancaire c = account(3L, "0");
+        when(repository.findAllByIdForUpdate(anyList())).thenReturn(List.of(a, b, c));
+
+        List<TransferResult> results = service.applyNetted(List.of(
+                transfer(1L, 2L, "10"),
+                transfer(1L, 3L, "5")));
+
+        assertEquals(List.of(TransferResult.Status.COMPLETED, TransferResult.Status.INSUFFICIENT_FUNDS), statuses(results));
+        assertEquals(new BigDecimal("0"), a.getBalance());
+        assertEquals(new BigDecimal("10"), b.getBalance());
+        assertEquals(new BigDecimal("0"), c.getBalance());
+        verify(ledgerWriter, never()).entry(c, new BigDecimal("5"));
+    }
+
+    @Test
+    void nettingSettlesACycleNoAccountCouldCoverAlone() {
+        CompteBancaire a = account(1L, "0");
+        CompteBancaire b = account(2L, "0");
+        when(repository.findAllByIdForUpdate(anyList())).thenReturn(List.of(a, b));
+
+        List<TransferResult> results = service.applyNetted(List.of(
+                transfer(1L, 2L, "5"),
+                transfer(2L, 1L, "5")));
+
+        assertEquals(List.of(TransferResult.Status.COMPLETED, TransferResult.Status.COMPLETED), statuses(results));
+        assertEquals(new BigDecimal("0"), a.getBalance());
+        assertEquals(new BigDecimal("0"), b.getBalance());
+    }
+
+    @Test
+    void nettingRepeatsRejectionsUntilEveryPositionIsCovered() {
+        CompteBancaire a = account(1L, "0");
+        CompteBancaire b = account(2L, "4");
+        when(repository.findAllByIdForUpdate(anyList())).thenReturn(List.of(a, b));
+
+        // b is short by 1, so 0 is rejected; a then loses the credit it needed to pay 1
+        List<TransferResult> results = service.applyNetted(List.of(
+                transfer(2L, 1L, "10"),
+                transfer(1L, 2L, "5")));
+
+        assertEquals(List.of(TransferResult.Status.INSUFFICIENT_FUNDS, TransferResult.Status.INSUFFICIENT_FUNDS),
+                statuses(results));
+        assertEquals(new BigDecimal("0"), a.getBalance());
+        assertEquals(new BigDecimal("4"), b.getBalance());
+        verify(ledgerWriter, never()).entry(any(), any());
+    }
+
+    @Test
+    void nettingReportsInvalidAndUnknownTransfersWithoutBlockingTheOthers() {
+        CompteBancaire a = account(1L, "10");
+        CompteBancaire b = account(2L, "0");
+        when(repository.findAllByIdForUpdate(anyList())).thenReturn(List.of(a, b));
+
+        List<TransferResult> results = service.applyNetted(Arrays.asList(
+                transfer(1L, 2L, "-1"),
+                transfer(1L, 9L, "5"),
+                transfer(1L, 2L, "10")));
+
+        assertEquals(List.of(TransferResult.Status.INVALID, TransferResult.Status.ACCOUNT_NOT_FOUND,
+                TransferResult.Status.COMPLETED), statuses(results));
+        assertEquals(new BigDecimal("10"), b.getBalance());
+    }
+
+    private static List<TransferResult.Status> statuses(List<TransferResult> results) {
+        return results.stream().map(TransferResult::status).toList();
+    }
+
+    private static TransferRequest transfer(Long from, Long to, String amount) {
+        return new TransferRequest(from, to, new BigDecimal(amount));
+    }
+
+    private static CompteBancaire account(Long id, String balance) {
+        CompteBancaire account = new CompteBancaire();
+        account.setId(id);
+        account.setBalance(new BigDecimal(balance));
+        return account;
+    }
+}
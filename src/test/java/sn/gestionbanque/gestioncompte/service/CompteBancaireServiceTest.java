@@ -0,0 +1,173 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sn.gestionbanque.gestioncompte.dto.CursorPage;
+import sn.gestionbanque.gestioncompte.dto.TransactionDto;
+import sn.gestionbanque.gestioncompte.exception.SoldeInsuffisantException;
+import sn.gestionbanque.gestioncompte.model.CompteBancaire;
+import sn.gestionbanque.gestioncompte.model.Transaction;
+import sn.gestionbanque.gestioncompte.repository.CompteBancaireRepository;
+import sn.gestionbanque.gestioncompte.repository.TransactionRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CompteBancaireServiceTest {
+
+    private static final LocalDateTime HORIZON = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    @Mock
+    private CompteBancaireRepository repository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionPartitionManager partitionManager;
+
+    @Mock
+    private TransferEngine transferEngine;
+
+    @Mock
+    private GroupCommitTransferQueue groupCommit;
+
+    private CompteBancaireService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CompteBancaireService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "repository", repository);
+        ReflectionTestUtils.setField(service, "transactionRepository", transactionRepository);
+        ReflectionTestUtils.setField(service, "partitionManager", partitionManager);
+        ReflectionTestUtils.setField(service, "maxPageSize", 1000);
+        ReflectionTestUtils.setField(service, "transferEngine", transferEngine);
+        ReflectionTestUtils.setField(service, "groupCommit", groupCommit);
+        ReflectionTestUtils.setField(service, "lockManager", new StripedLockManager(16, 50, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "transferMode", TransferMode.OPTIMISTIC);
+        ReflectionTestUtils.setField(service, "maxRetries", 2);
+        ReflectionTestUtils.setField(service, "initialBackoffMs", 1L);
+        ReflectionTestUtils.setField(service, "maxBackoffMs", 1L);
+    }
+
+    @Test
+    void rejectsNonPositiveAmounts() {
+        assertThrows(IllegalArgumentException.class, () -> service.transfer(1L, 2L, BigDecimal.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> service.transfer(1L, 2L, new BigDecimal("-0.01")));
+        verifyNoInteractions(transferEngine, groupCommit);
+    }
+
+    @Test
+    void optimisticTransferRetriesConflicts() {
+        doThrow(new ObjectOptimisticLockingFailureException(CompteBancaire.class, 1L))
+                .doNothing()
+                .when(transferEngine).transferOptimistic(1L, 2L, BigDecimal.TEN);
+
+        service.transfer(1L, 2L, BigDecimal.TEN);
+
+        verify(transferEngine, times(2)).transferOptimistic(1L, 2L, BigDecimal.TEN);
+    }
+
+    @Test
+    void optimisticTransferGivesUpAfterTheLastRetry() {
+        doThrow(new ObjectOptimisticLockingFailureException(CompteBancaire.class, 1L))
+                .when(transferEngine).transferOptimistic(1L, 2L, BigDecimal.TEN);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> service.transfer(1L, 2L, BigDecimal.TEN));
+
+        verify(transferEngine, times(3)).transferOptimistic(1L, 2L, BigDecimal.TEN);
+    }
+
+    @Test
+    void insufficientFundsAreNotRetried() {
+        doThrow(new SoldeInsuffisantException("Insufficient funds in account with id: 1"))
+                .when(transferEngine).transferOptimistic(1L, 2L, BigDecimal.TEN);
+
+        assertThrows(SoldeInsuffisantException.class, () -> service.transfer(1L, 2L, BigDecimal.TEN));
+
+        verify(transferEngine, times(1)).transferOptimistic(1L, 2L, BigDecimal.TEN);
+    }
+
+    @Test
+    void keysetCursorResumesAfterTheLastRowOfThePage() {
+        LocalDateTime newest = LocalDateTime.of(2024, 3, 1, 12, 0, 0, 123_456_000);
+        LocalDateTime older = newest.minusMinutes(1);
+        when(repository.existsById(7L)).thenReturn(true);
+        when(partitionManager.retentionHorizon()).thenReturn(HORIZON);
+        when(transactionRepository.findLatestByAccountId(7L, HORIZON, PageRequest.of(0, 3)))
+                .thenReturn(List.of(row(30L, newest), row(20L, older), row(10L, older)));
+
+        CursorPage<TransactionDto> first = service.getAccountTransactions(7L, null, 2);
+
+        assertEquals(List.of(30L, 20L), first.items().stream().map(TransactionDto::id).toList());
+        assertNotNull(first.nextCursor());
+
+        when(transactionRepository.findByAccountIdBefore(7L, HORIZON, older, 20L, PageRequest.of(0, 3)))
+                .thenReturn(List.of(row(10L, older)));
+
+        CursorPage<TransactionDto> second = service.getAccountTransactions(7L, first.nextCursor(), 2);
+
+        assertEquals(List.of(10L), second.items().stream().map(TransactionDto::id).toList());
+        assertNull(second.nextCursor());
+        verify(transactionRepository).findByAccountIdBefore(7L, HORIZON, older, 20L, PageRequest.of(0, 3));
+    }
+
+    @Test
+    void exactlyFullLastPageHasNoNextCursor() {
+        when(repository.existsById(7L)).thenReturn(true);
+        when(partitionManager.retentionHorizon()).thenReturn(HORIZON);
+        LocalDateTime date = LocalDateTime.of(2024, 3, 1, 12, 0);
+        when(transactionRepository.findLatestByAccountId(any(), any(), any()))
+                .thenReturn(List.of(row(2L, date), row(1L, date)));
+
+        assertNull(service.getAccountTransactions(7L, null, 2).nextCursor());
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        when(repository.existsById(7L)).thenReturn(true);
+        when(partitionManager.retentionHorizon()).thenReturn(HORIZON);
+
+        assertThrows(IllegalArgumentException.class, () -> service.getAccountTransactions(7L, "not a cursor!", 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getAccountTransactions(7L, CursorCodec.encode("yesterday", 5), 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getAccountTransactions(7L, CursorCodec.encode(LocalDateTime.now()), 2));
+    }
+
+    @Test
+    void rejectsPageSizesOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> service.getAccountTransactions(7L, null, 0));
+        assertThrows(IllegalArgumentException.class, () -> service.getAccountTransactions(7L, null, 1001));
+        assertThrows(IllegalArgumentException.class, () -> service.getAccountTransactions(7L, 0, 1001));
+        verify(transactionRepository, never()).findLatestByAccountId(anyLong(), any(), any());
+    }
+
+    private static TransactionDto row(Long id, LocalDateTime date) {
+        return new TransactionDto(id, BigDecimal.TEN, date, Transaction.Type.DEPOSIT);
+    }
+}
@@ -0,0 +1,117 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sn.gestionbanque.gestioncompte.dto.TransferRequest;
+import sn.gestionbanque.gestioncompte.dto.TransferResult;
+import sn.gestionbanque.gestioncompte.exception.SoldeInsuffisantException;
+import sn.gestionbanque.gestioncompte.exception.TransfertIncertainException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class GroupCommitTransferQueueTest {
+
+    @Mock
+    private BatchTransferService batchTransferService;
+
+    private GroupCommitTransferQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new GroupCommitTransferQueue(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(queue, "batchTransferService", batchTransferService);
+        ReflectionTestUtils.setField(queue, "enabled", true);
+        ReflectionTestUtils.setField(queue, "windowMs", 5_000L);
+        ReflectionTestUtils.setField(queue, "maxItems", 2);
+        ReflectionTestUtils.setField(queue, "queueCapacity", 10);
+        ReflectionTestUtils.setField(queue, "timeoutMs", 5_000L);
+        ReflectionTestUtils.setField(queue, "transferMode", TransferMode.PESSIMISTIC);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.stop();
+    }
+
+    @Test
+    void concurrentTransfersShareOneCommitAndGetTheirOwnOutcome() throws Exception {
+        when(batchTransferService.apply(anyList())).thenAnswer(invocation -> {
+            List<TransferRequest> requests = invocation.getArgument(0);
+            List<TransferResult> results = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                results.add(requests.get(i).fromAccountId() == 1L ? TransferResult.completed(i)
+                        : new TransferResult(i, TransferResult.Status.INSUFFICIENT_FUNDS, "Insufficient funds"));
+            }
+            return results;
+        });
+        queue.start();
+
+        CompletableFuture<Void> funded = CompletableFuture.runAsync(() -> queue.transfer(1L, 2L, BigDecimal.TEN));
+        CompletableFuture<Void> unfunded = CompletableFuture.runAsync(() -> queue.transfer(3L, 4L, BigDecimal.TEN));
+
+        funded.get(5, TimeUnit.SECONDS);
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> unfunded.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(SoldeInsuffisantException.class, failure.getCause());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TransferRequest>> groups = ArgumentCaptor.forClass(List.class);
+        verify(batchTransferService).apply(groups.capture());
+        assertEquals(Set.of(1L, 3L), groups.getValue().stream()
+                .map(TransferRequest::fromAccountId)
+                .collect(Collectors.toSet()));
+    }
+
+    @Test
+    void commitTimeoutReportsAnUnknownOutcome() {
+        ReflectionTestUtils.setField(queue, "windowMs", 1L);
+        ReflectionTestUtils.setField(queue, "timeoutMs", 100L);
+        CountDownLatch release = new CountDownLatch(1);
+        when(batchTransferService.apply(anyList())).thenAnswer(invocation -> {
+            release.await();
+            return List.of(TransferResult.completed(0));
+        });
+        queue.start();
+
+        try {
+            TransfertIncertainException ex = assertThrows(TransfertIncertainException.class,
+                    () -> queue.transfer(1L, 2L, BigDecimal.TEN));
+            assertTrue(ex.getMessage().contains("may have been applied"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void stoppedStageRejectsTransfers() {
+        queue.start();
+        queue.stop();
+
+        assertThrows(RejectedExecutionException.class, () -> queue.transfer(1L, 2L, BigDecimal.TEN));
+    }
+}
@@ -0,0 +1,147 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sn.gestionbanque.gestioncompte.exception.CleIdempotenceException;
+import sn.gestionbanque.gestioncompte.exception.SoldeInsuffisantException;
+import sn.gestionbanque.gestioncompte.model.CleIdempotence;
+import sn.gestionbanque.gestioncompte.repository.CleIdempotenceRepository;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private CleIdempotenceRepository repository;
+
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotencyService(100, 15);
+        ReflectionTestUtils.setField(service, "repository", repository);
+        ReflectionTestUtils.setField(service, "waitMs", 100L);
+    }
+
+    @Test
+    void replaysTheFirstResponseWithoutExecutingAgain() {
+        AtomicInteger executions = new AtomicInteger();
+        ResponseEntity<String> first = service.execute("key-1", "1:2:10",
+                () -> ResponseEntity.ok("Transfer " + executions.incrementAndGet()));
+        ResponseEntity<String> retry = service.execute("key-1", "1:2:10",
+                () -> ResponseEntity.ok("Transfer " + executions.incrementAndGet()));
+
+        assertSame(first, retry);
+        assertEquals(1, executions.get());
+        verify(repository, times(1)).claim(eq("key-1"), eq("1:2:10"), any());
+        verify(repository).complete("key-1", 200, "Transfer 1");
+    }
+
+    @Test
+    void rejectsAKeyReusedWithOtherParameters() {
+        service.execute("key-1", "1:2:10", () -> ResponseEntity.ok("done"));
+
+        CleIdempotenceException ex = assertThrows(CleIdempotenceException.class,
+                () -> service.execute("key-1", "1:2:99", () -> ResponseEntity.ok("again")));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ex.getStatus());
+    }
+
+    @Test
+    void replaysAResponseStoredByAnotherInstance() {
+        doThrow(new DataIntegrityViolationException("duplicate"))
+                .when(repository).claim(eq("key-1"), eq("1:2:10"), any());
+        when(repository.findById("key-1")).thenReturn(Optional.of(stored("1:2:10", 200, "done")));
+
+        ResponseEntity<String> response = service.execute("key-1", "1:2:10", () -> {
+            throw new AssertionError("must not execute");
+        });
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("done", response.getBody());
+    }
+
+    @Test
+    void reportsAKeyStillInProgressElsewhereAsConflict() {
+        doThrow(new DataIntegrityViolationException("duplicate"))
+                .when(repository).claim(eq("key-1"), eq("1:2:10"), any());
+        when(repository.findById("key-1")).thenReturn(Optional.of(stored("1:2:10", null, null)));
+
+        CleIdempotenceException ex = assertThrows(CleIdempotenceException.class,
+                () -> service.execute("key-1", "1:2:10", () -> ResponseEntity.ok("again")));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+    }
+
+    @Test
+    void releasesTheKeyWhenNothingWasApplied() {
+        assertThrows(SoldeInsuffisantException.class, () -> service.execute("key-1", "1:2:10", () -> {
+            throw new SoldeInsuffisantException("Insufficient funds");
+        }));
+        verify(repository).deleteById("key-1");
+
+        ResponseEntity<String> retry = service.execute("key-1", "1:2:10", () -> ResponseEntity.ok("done"));
+        assertEquals("done", retry.getBody());
+    }
+
+    @Test
+    void keepsTheKeyClaimedWhenTheOutcomeIsUnknown() {
+        assertThrows(IllegalStateException.class, () -> service.execute("key-1", "1:2:10", () -> {
+            throw new IllegalStateException("commit outcome unknown");
+        }));
+        verify(repository, never()).deleteById(anyString());
+
+        CleIdempotenceException ex = assertThrows(CleIdempotenceException.class,
+                () -> service.execute("key-1", "1:2:10", () -> ResponseEntity.ok("again")));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatus());
+    }
+
+    @Test
+    void stillAnswersWhenTheResponseCannotBeStored() {
+        doThrow(new DataIntegrityViolationException("down")).when(repository).complete(anyString(), eq(200), any());
+
+        ResponseEntity<String> response = service.execute("key-1", "1:2:10", () -> ResponseEntity.ok("done"));
+
+        assertEquals("done", response.getBody());
+        assertSame(response, service.execute("key-1", "1:2:10", () -> ResponseEntity.ok("again")));
+    }
+
+    @Test
+    void rejectsBlankAndOverlongKeys() {
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(CleIdempotenceException.class,
+                () -> service.execute(" ", "f", () -> ResponseEntity.ok("x"))).getStatus());
+        String overlong = "k".repeat(IdempotencyService.MAX_KEY_LENGTH + 1);
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(CleIdempotenceException.class,
+                () -> service.execute(overlong, "f", () -> ResponseEntity.ok("x"))).getStatus());
+        verify(repository, never()).claim(any(), any(), any());
+    }
+
+    private static CleIdempotence stored(String fingerprint, Integer status, String body) {
+        CleIdempotence key = new CleIdempotence();
+        key.setKey("key-1");
+        key.setFingerprint(fingerprint);
+        key.setResponseStatus(status);
+        key.setResponseBody(body);
+        return key;
+    }
+}
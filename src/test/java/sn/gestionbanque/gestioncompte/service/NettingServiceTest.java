@@ -0,0 +1,103 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sn.gestionbanque.gestioncompte.dto.SettlementResult;
+import sn.gestionbanque.gestioncompte.dto.TransferRequest;
+import sn.gestionbanque.gestioncompte.dto.TransferResult;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class NettingServiceTest {
+
+    @Mock
+    private BatchTransferService batchTransferService;
+
+    private NettingService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new NettingService(2, 60);
+        ReflectionTestUtils.setField(service, "batchTransferService", batchTransferService);
+        ReflectionTestUtils.setField(service, "maxBatchSize", 100);
+    }
+
+    @Test
+    void settlementReportsEachTicketInQueueOrder() {
+        TransferRequest first = transfer(1L, 2L);
+        TransferRequest second = transfer(2L, 3L);
+        long firstTicket = service.enqueue(first);
+        long secondTicket = service.enqueue(second);
+        when(batchTransferService.applyNetted(List.of(first, second))).thenReturn(List.of(
+                TransferResult.completed(0),
+                new TransferResult(1, TransferResult.Status.INSUFFICIENT_FUNDS, "Insufficient funds")));
+
+        List<SettlementResult> settled = service.settle();
+
+        assertEquals(List.of(firstTicket, secondTicket), settled.stream().map(SettlementResult::ticket).toList());
+        assertEquals(TransferResult.Status.INSUFFICIENT_FUNDS, settled.get(1).status());
+        verify(batchTransferService).applyNetted(List.of(first, second));
+    }
+
+    @Test
+    void failedWindowIsSettledFirstAndInOrder() {
+        TransferRequest first = transfer(1L, 2L);
+        TransferRequest second = transfer(2L, 3L);
+        long firstTicket = service.enqueue(first);
+        when(batchTransferService.applyNetted(anyList()))
+                .thenThrow(new CannotAcquireLockException("busy"))
+                .thenReturn(List.of(TransferResult.completed(0), TransferResult.completed(1)));
+
+        assertThrows(CannotAcquireLockException.class, service::settle);
+        assertTrue(service.isPending(firstTicket));
+
+        long secondTicket = service.enqueue(second);
+        List<SettlementResult> settled = service.settle();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TransferRequest>> windows = ArgumentCaptor.forClass(List.class);
+        verify(batchTransferService, times(2)).applyNetted(windows.capture());
+        assertEquals(List.of(first, second), windows.getAllValues().get(1));
+        assertEquals(List.of(firstTicket, secondTicket), settled.stream().map(SettlementResult::ticket).toList());
+        assertFalse(service.isPending(firstTicket));
+        assertEquals(TransferResult.Status.COMPLETED, service.getResult(secondTicket).orElseThrow().status());
+    }
+
+    @Test
+    void fullQueueRejectsWithoutLeavingAPendingTicket() {
+        service.enqueue(transfer(1L, 2L));
+        service.enqueue(transfer(1L, 2L));
+
+        assertThrows(RejectedExecutionException.class, () -> service.enqueue(transfer(1L, 2L)));
+        assertFalse(service.isPending(3L));
+    }
+
+    @Test
+    void rejectsInvalidTransfers() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.enqueue(new TransferRequest(1L, 2L, BigDecimal.ZERO)));
+    }
+
+    private static TransferRequest transfer(Long from, Long to) {
+        return new TransferRequest(from, to, BigDecimal.ONE);
+    }
+}
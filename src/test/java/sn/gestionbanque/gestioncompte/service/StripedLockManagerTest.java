@@ -0,0 +1,69 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StripedLockManagerTest {
+
+    @Test
+    void oppositeTransfersDoNotDeadlock() throws Exception {
+        StripedLockManager locks = new StripedLockManager(16, 5000, new SimpleMeterRegistry());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> forward = pool.submit(() -> lockRepeatedly(locks, start, 1L, 2L));
+            Future<?> backward = pool.submit(() -> lockRepeatedly(locks, start, 2L, 1L));
+            start.countDown();
+            // A lock-order inversion would end with a stripe timeout instead
+            forward.get(30, TimeUnit.SECONDS);
+            backward.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void busyStripesTimeOut() throws Exception {
+        StripedLockManager locks = new StripedLockManager(16, 50, new SimpleMeterRegistry());
+        try (StripedLockManager.Stripes ignored = locks.lock(1L, 2L)) {
+            ExecutorService pool = Executors.newSingleThreadExecutor();
+            try {
+                Future<?> other = pool.submit(() -> locks.lock(2L, 1L).close());
+                ExecutionException failure = assertThrows(ExecutionException.class, () -> other.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(CannotAcquireLockException.class, failure.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    @Test
+    void stripeCountMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new StripedLockManager(12, 50, new SimpleMeterRegistry()));
+    }
+
+    private static void lockRepeatedly(StripedLockManager locks, CountDownLatch start, long from, long to) {
+        try {
+            start.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (int i = 0; i < 10_000; i++) {
+            try (StripedLockManager.Stripes ignored = locks.lock(from, to)) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionPartitionManagerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionPartitionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        manager = new TransactionPartitionManager();
+        ReflectionTestUtils.setField(manager, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(manager, "enabled", true);
+        ReflectionTestUtils.setField(manager, "monthsAhead", 2);
+        ReflectionTestUtils.setField(manager, "archive", false);
+    }
+
+    @Test
+    void partitionsAreNamedByMonthAndBoundedByTheFirstDayOfTheNextOne() {
+        partitions("p202409", "pmax");
+
+        manager.maintain(YearMonth.of(2024, 9));
+
+        verify(jdbcTemplate).execute("alter table transactions reorganize partition pmax into ("
+                + "partition p202410 values less than ('2024-11-01'), "
+                + "partition p202411 values less than ('2024-12-01'), "
+                + "partition pmax values less than (maxvalue))");
+    }
+
+    @Test
+    void partitionsAheadRollOverIntoTheNextYear() {
+        partitions("p202411", "pmax");
+
+        manager.maintain(YearMonth.of(2024, 11));
+
+        verify(jdbcTemplate).execute("alter table transactions reorganize partition pmax into ("
+                + "partition p202412 values less than ('2025-01-01'), "
+                + "partition p202501 values less than ('2025-02-01'), "
+                + "partition pmax values less than (maxvalue))");
+    }
+
+    @Test
+    void nextMonthIsCreatedBeforeTheCurrentUpperBoundEvenWithoutMonthsAhead() {
+        ReflectionTestUtils.setField(manager, "monthsAhead", 0);
+        partitions("p202412", "pmax");
+
+        manager.maintain(YearMonth.of(2024, 12));
+
+        verify(jdbcTemplate).execute("alter table transactions reorganize partition pmax into ("
+                + "partition p202501 values less than ('2025-02-01'), "
+                + "partition pmax values less than (maxvalue))");
+    }
+
+    @Test
+    void nothingIsCreatedWhenThePartitionsAheadExist() {
+        partitions("p202409", "p202410", "p202411", "pmax");
+
+        manager.maintain(YearMonth.of(2024, 9));
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void missedMonthsAreCreatedFromTheLastExistingPartition() {
+        partitions("p202406", "pmax");
+
+        manager.maintain(YearMonth.of(2024, 8));
+
+        verify(jdbcTemplate).execute("alter table transactions reorganize partition pmax into ("
+                + "partition p202407 values less than ('2024-08-01'), "
+                + "partition p202408 values less than ('2024-09-01'), "
+                + "partition p202409 values less than ('2024-10-01'), "
+                + "partition p202410 values less than ('2024-11-01'), "
+                + "partition pmax values less than (maxvalue))");
+    }
+
+    @Test
+    void partitionsBeforeTheRetentionAreDroppedAndTheRestKept() {
+        ReflectionTestUtils.setField(manager, "retentionMonths", 2);
+        partitions("p202410", "p202411", "p202412", "p202501", "p202502", "pmax");
+
+        manager.maintain(YearMonth.of(2025, 1));
+
+        verify(jdbcTemplate).execute("alter table transactions drop partition p202410");
+        verify(jdbcTemplate, never()).execute("alter table transactions drop partition p202411");
+        verify(jdbcTemplate, never()).execute("alter table transactions drop partition pmax");
+    }
+
+    @Test
+    void retentionHorizonIsTheFirstDayOfTheOldestRetainedMonth() {
+        assertEquals(LocalDateTime.of(1970, 1, 1, 0, 0), manager.retentionHorizon());
+
+        ReflectionTestUtils.setField(manager, "retentionMonths", 3);
+
+        assertEquals(YearMonth.now().minusMonths(3).atDay(1).atStartOfDay(), manager.retentionHorizon());
+    }
+
+    @Test
+    void onlyMonthlyPartitionNamesAreAccepted() {
+        assertThrows(IllegalArgumentException.class, () -> manager.dropPartition("pmax"));
+        assertThrows(IllegalArgumentException.class, () -> manager.detachPartition("p2024; drop table x"));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private void partitions(String... names) {
+        when(jdbcTemplate.queryForList(startsWith("select partition_name"), eq(String.class), eq("transactions")))
+                .thenReturn(List.of(names));
+    }
+}
@@ -0,0 +1,145 @@
+package sn.gestionbanque.gestioncompte.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import sn.gestionbanque.gestioncompte.exception.CompteInexistantException;
+import sn.gestionbanque.gestioncompte.exception.SoldeInsuffisantException;
+import sn.gestionbanque.gestioncompte.model.CompteBancaire;
+import sn.gestionbanque.gestioncompte.repository.CompteBancaireRepository;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransferEngineTest {
+
+    @Mock
+    private CompteBancaireRepository repository;
+
+    @Mock
+    private LedgerWriter ledgerWriter;
+
+    @Mock
+    private BalanceCache balanceCache;
+
+    private TransferEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        engine = new TransferEngine(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(engine, "repository", repository);
+        ReflectionTestUtils.setField(engine, "ledgerWriter", ledgerWriter);
+        ReflectionTestUtils.setField(engine, "balanceCache", balanceCache);
+    }
+
+    @Test
+    void transferLocksAccountsInAscendingIdOrderWhateverTheDirection() {
+        CompteBancaire low = account(1L, "100");
+        CompteBancaire high = account(2L, "50");
+        when(repository.findByIdForUpdate(1L)).thenReturn(Optional.of(low));
+        when(repository.findByIdForUpdate(2L)).thenReturn(Optional.of(high));
+
+        engine.transfer(2L, 1L, new BigDecimal("30"));
+
+        InOrder locks = inOrder(repository);
+        locks.verify(repository).findByIdForUpdate(1L);
+        locks.verify(repository).findByIdForUpdate(2L);
+        assertEquals(new BigDecimal("20"), high.getBalance());
+        assertEquals(new BigDecimal("130"), low.getBalance());
+        verify(ledgerWriter).record(high, new BigDecimal("-30"));
+        verify(ledgerWriter).record(low, new BigDecimal("30"));
+    }
+
+    @Test
+    void transferRejectsInsufficientFundsWithoutTouchingTheLedger() {
+        CompteBancaire from = account(1L, "10");
+        CompteBancaire to = account(2L, "0");
+        when(repository.findByIdForUpdate(1L)).thenReturn(Optional.of(from));
+        when(repository.findByIdForUpdate(2L)).thenReturn(Optional.of(to));
+
+        assertThrows(SoldeInsuffisantException.class, () -> engine.transfer(1L, 2L, new BigDecimal("10.01")));
+
+        assertEquals(new BigDecimal("10"), from.getBalance());
+        assertEquals(new BigDecimal("0"), to.getBalance());
+        verify(ledgerWriter, never()).record(any(), any());
+    }
+
+    @Test
+    void transferAllowsDebitingTheWholeBalance() {
+        CompteBancaire from = account(1L, "10");
+        CompteBancaire to = account(2L, "0");
+        when(repository.findByIdForUpdate(1L)).thenReturn(Optional.of(from));
+        when(repository.findByIdForUpdate(2L)).thenReturn(Optional.of(to));
+
+        engine.transfer(1L, 2L, new BigDecimal("10"));
+
+        assertEquals(0, from.getBalance().signum());
+        assertEquals(new BigDecimal("10"), to.getBalance());
+    }
+
+    @Test
+    void transferRejectsUnknownAccount() {
+        when(repository.findByIdForUpdate(1L)).thenReturn(Optional.of(account(1L, "100")));
+        when(repository.findByIdForUpdate(2L)).thenReturn(Optional.empty());
+
+        assertThrows(CompteInexistantException.class, () -> engine.transfer(1L, 2L, BigDecimal.ONE));
+        verify(ledgerWriter, never()).record(any(), any());
+    }
+
+    @Test
+    void optimisticTransferRejectsInsufficientFunds() {
+        when(repository.findById(1L)).thenReturn(Optional.of(account(1L, "5")));
+        when(repository.findById(2L)).thenReturn(Optional.of(account(2L, "0")));
+
+        assertThrows(SoldeInsuffisantException.class, () -> engine.transferOptimistic(1L, 2L, BigDecimal.TEN));
+        verify(ledgerWriter, never()).record(any(), any());
+    }
+
+    @Test
+    void directTransferUpdatesRowsInAscendingIdOrder() {
+        when(repository.debit(2L, BigDecimal.TEN)).thenReturn(1);
+        when(repository.credit(1L, BigDecimal.TEN)).thenReturn(1);
+
+        engine.transferDirect(2L, 1L, BigDecimal.TEN);
+
+        InOrder updates = inOrder(repository);
+        updates.verify(repository).credit(1L, BigDecimal.TEN);
+        updates.verify(repository).debit(2L, BigDecimal.TEN);
+        verify(balanceCache).evict(2L, 1L);
+    }
+
+    @Test
+    void directTransferTellsInsufficientFundsFromUnknownAccount() {
+        when(repository.debit(1L, BigDecimal.TEN)).thenReturn(0);
+        when(repository.existsById(1L)).thenReturn(true);
+        assertThrows(SoldeInsuffisantException.class, () -> engine.transferDirect(1L, 2L, BigDecimal.TEN));
+
+        when(repository.existsById(1L)).thenReturn(false);
+        assertThrows(CompteInexistantException.class, () -> engine.transferDirect(1L, 2L, BigDecimal.TEN));
+
+        verify(repository, never()).credit(any(), any());
+        verify(ledgerWriter, never()).record(any(), any());
+    }
+
+    private static CompteBancaire account(Long id, String balance) {
+        CompteBancaire account = new CompteBancaire();
+        account.setId(id);
+        account.setBalance(new BigDecimal(balance));
+        return account;
+    }
+}